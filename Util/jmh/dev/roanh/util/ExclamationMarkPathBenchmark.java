@@ -0,0 +1,103 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link ExclamationMarkPath#verifyPath(File)}
+ * on real directory trees of various depths.
+ * @author Roan
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExclamationMarkPathBenchmark{
+	/**
+	 * The number of directories below the temporary directory.
+	 */
+	@Param({"4", "16", "64"})
+	public int depth;
+	/**
+	 * The root of the created directory tree.
+	 */
+	private Path root;
+	/**
+	 * File at the bottom of the directory tree.
+	 */
+	private File file;
+
+	/**
+	 * Creates the directory tree and the file to check.
+	 * @throws IOException When an IOException occurs.
+	 */
+	@Setup
+	public void setup() throws IOException{
+		root = Files.createTempDirectory("Util-bench");
+		Path dir = root;
+		for(int i = 0; i < depth; i++){
+			dir = dir.resolve("dir" + i);
+		}
+		file = Files.createFile(Files.createDirectories(dir).resolve("Util.jar")).toFile();
+	}
+
+	/**
+	 * Deletes the created directory tree.
+	 * @throws IOException When an IOException occurs.
+	 */
+	@TearDown
+	public void teardown() throws IOException{
+		try(Stream<Path> files = Files.walk(root)){
+			for(Path path : (Iterable<Path>)files.sorted(Comparator.reverseOrder())::iterator){
+				Files.delete(path);
+			}
+		}
+	}
+
+	/**
+	 * Measures checking the full path of the file.
+	 * @return True if the path contains an exclamation mark.
+	 */
+	@Benchmark
+	public boolean verifyPath(){
+		return ExclamationMarkPath.verifyPath(file);
+	}
+}
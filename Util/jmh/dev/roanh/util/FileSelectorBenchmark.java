@@ -0,0 +1,125 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the initialisation of {@link FileSelector} and for
+ * matching file names against extension filters, comparing the Swing
+ * filter with the compiled {@link ExtensionFilter}.
+ * @author Roan
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileSelectorBenchmark{
+	/**
+	 * The number of extensions accepted by the filter.
+	 */
+	@Param({"1", "8", "32"})
+	public int extensions;
+	/**
+	 * The Swing filter to match files against.
+	 */
+	private FileNameExtensionFilter filter;
+	/**
+	 * The compiled filter to match files against.
+	 */
+	private ExtensionFilter compiled;
+	/**
+	 * The files to match, about half of which match the filter.
+	 */
+	private File[] files;
+
+	/**
+	 * Constructs the filter and the files to match.
+	 */
+	@Setup
+	public void setup(){
+		String[] exts = new String[extensions];
+		for(int i = 0; i < extensions; i++){
+			exts[i] = "ext" + i;
+		}
+		filter = new FileNameExtensionFilter("Benchmark", exts);
+		compiled = new ExtensionFilter("Benchmark", exts);
+
+		files = new File[256];
+		for(int i = 0; i < files.length; i++){
+			files[i] = new File("file" + i + "." + (i % 2 == 0 ? "EXT" + (i % extensions) : "other" + i));
+		}
+	}
+
+	/**
+	 * Measures loading the {@link FileSelector} backend in a fresh
+	 * JVM. On Windows this includes extracting and loading the
+	 * native library.
+	 * @return True if the native backend was loaded.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Fork(10)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public boolean initialisation(){
+		return FileSelector.preload().join();
+	}
+
+	/**
+	 * Measures matching all files against the Swing filter.
+	 * @param bh Blackhole to consume the results.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	public void match(Blackhole bh){
+		for(File file : files){
+			bh.consume(filter.accept(file));
+		}
+	}
+	
+	/**
+	 * Measures matching all files against the compiled filter.
+	 * @param bh Blackhole to consume the results.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	public void matchCompiled(Blackhole bh){
+		for(File file : files){
+			bh.consume(compiled.accept(file));
+		}
+	}
+}
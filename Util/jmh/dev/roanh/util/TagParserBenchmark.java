@@ -0,0 +1,95 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for finding the latest version in a GitHub tags
+ * response as done by {@link Util#checkVersion(String, String)}.
+ * The payloads follow the exact layout of the GitHub API.
+ * @author Roan
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TagParserBenchmark{
+	/**
+	 * The number of tags in the payload, 100 is a full page.
+	 */
+	@Param({"1", "10", "100"})
+	public int tags;
+	/**
+	 * The payload to parse.
+	 */
+	private byte[] payload;
+
+	/**
+	 * Constructs the payload with the configured number of tags.
+	 */
+	@Setup
+	public void setup(){
+		StringBuilder json = new StringBuilder("[\n");
+		for(int i = 0; i < tags; i++){
+			String name = "v" + (i / 10) + "." + (i % 10);
+			String sha = String.format("%040x", i * 2654435761L);
+			json.append("  {\n");
+			json.append("    \"name\": \"").append(name).append("\",\n");
+			json.append("    \"zipball_url\": \"https://api.github.com/repos/RoanH/Util/zipball/refs/tags/").append(name).append("\",\n");
+			json.append("    \"tarball_url\": \"https://api.github.com/repos/RoanH/Util/tarball/refs/tags/").append(name).append("\",\n");
+			json.append("    \"commit\": {\n");
+			json.append("      \"sha\": \"").append(sha).append("\",\n");
+			json.append("      \"url\": \"https://api.github.com/repos/RoanH/Util/commits/").append(sha).append("\"\n");
+			json.append("    },\n");
+			json.append("    \"node_id\": \"MDM6UmVmMTg0ODY1NTU2OnJlZnMvdGFncy92").append(i).append("\"\n");
+			json.append(i == tags - 1 ? "  }\n" : "  },\n");
+		}
+		payload = json.append("]\n").toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Measures parsing the payload and finding the latest version.
+	 * @return The latest version.
+	 * @throws IOException When an IOException occurs.
+	 */
+	@Benchmark
+	public VersionNumber parse() throws IOException{
+		VersionNumber.Max latest = new VersionNumber.Max();
+		TagParser.parse(new ByteArrayInputStream(payload), latest);
+		return latest.get();
+	}
+}
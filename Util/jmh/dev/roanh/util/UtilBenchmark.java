@@ -0,0 +1,92 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the startup cost of {@link Util}
+ * and for reading artifact versions.
+ * @author Roan
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UtilBenchmark{
+
+	/**
+	 * Measures the class initialisation of {@link Util} in a fresh JVM.
+	 * @return The initialised class.
+	 * @throws ClassNotFoundException When the class cannot be found.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Fork(10)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public Class<?> initialisation() throws ClassNotFoundException{
+		return Class.forName("dev.roanh.util.Util", true, UtilBenchmark.class.getClassLoader());
+	}
+
+	/**
+	 * Measures the first lookup of an artifact version in a fresh JVM.
+	 * @return The read version.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Fork(10)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public String readArtifactVersionCold(){
+		return Util.readArtifactVersion("org.openjdk.jmh", "jmh-core");
+	}
+
+	/**
+	 * Measures repeated lookups of an artifact version.
+	 * @return The read version.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public String readArtifactVersion(){
+		return Util.readArtifactVersion("org.openjdk.jmh", "jmh-core");
+	}
+
+	/**
+	 * Measures building an index of all artifacts on the class path.
+	 * @return The constructed index.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	public ArtifactIndex buildArtifactIndex(){
+		return ArtifactIndex.build(UtilBenchmark.class.getClassLoader());
+	}
+}
@@ -37,6 +37,10 @@
  * Selection of folders, mutually exclusive with FILES.
  */
 #define FOLDERS 16
+/**
+ * Selection of multiple files, only valid with OPEN.
+ */
+#define MULTIPLE 32
 
 /**
  * Struct representing a registered file extension.
@@ -53,9 +57,9 @@ typedef struct{
 } FILE_TYPE;
 
 /**
- * Array of registered extensions.
+ * Array of registered extensions, the extension at index i has ID 1 << i.
  */
-FILE_TYPE *extensions;
+FILE_TYPE extensions[dev_roanh_util_FileSelector_NATIVE_EXTENSIONS];
 /**
  * Number of registered extensions.
  */
@@ -68,10 +72,14 @@ int ext_num = 0;
  * @param types Bitwise combination of file extension filters to enable.
  * @param typec Number of bits set in types.
  * @param fname Default save file name, NULL for an OPEN dialog.
- * @return The path to the selected file or folder.
+ * @param paths Set to an array with the paths to all selected files
+ *        or folders, NULL if nothing was selected. The array has to
+ *        be freed with free and the paths with CoTaskMemFree.
+ * @return The number of selected files or folders.
  */
-LPWSTR showDialog(int flags, jlong types, jint typec, LPWSTR fname){
-	LPWSTR path = NULL;
+DWORD showDialog(int flags, jlong types, jint typec, LPWSTR fname, LPWSTR **paths){
+	DWORD count = 0;
+	*paths = NULL;
 	HRESULT hr = CoInitializeEx(NULL, COINIT_APARTMENTTHREADED | COINIT_DISABLE_OLE1DDE);
 	if(SUCCEEDED(hr)){
 		IFileDialog *dialog;
@@ -86,23 +94,28 @@ LPWSTR showDialog(int flags, jlong types, jint typec, LPWSTR fname){
 			DWORD options;
 			if(SUCCEEDED(dialog->GetOptions(&options))){
 				if((flags & FOLDERS) > 0){
-					dialog->SetOptions(options | FOS_PICKFOLDERS);
+					options |= FOS_PICKFOLDERS;
+				}
+
+				if((flags & MULTIPLE) > 0){
+					options |= FOS_ALLOWMULTISELECT;
 				}
 
 				if(typec != 0){
 					filters = (COMDLG_FILTERSPEC*)malloc(typec * sizeof(COMDLG_FILTERSPEC));
 					if(filters != NULL){
-						int idx = 0;
-						for(jlong i = 0; idx < typec; i++){
+						jint idx = 0;
+						for(int i = 0; i < ext_num && idx < typec; i++){
 							if((types & (jlong(1) << i)) != 0){
 								filters[idx++] = extensions[i].ext;
 								dialog->SetDefaultExtension(extensions[i].def);
 							}
 						}
-						dialog->SetFileTypes(typec, filters);
-						dialog->SetOptions(options | FOS_STRICTFILETYPES);
+						dialog->SetFileTypes(idx, filters);
+						options |= FOS_STRICTFILETYPES;
 					}
 				}
+				dialog->SetOptions(options);
 
 				if(fname != NULL){
 					dialog->SetFileName(fname);
@@ -110,11 +123,37 @@ LPWSTR showDialog(int flags, jlong types, jint typec, LPWSTR fname){
 
 				hr = dialog->Show(NULL);
 				if(SUCCEEDED(hr)){
-					IShellItem *item;
-					hr = dialog->GetResult(&item);
-					if(SUCCEEDED(hr)){
-						item->GetDisplayName(SIGDN_FILESYSPATH, &path);
-						item->Release();
+					if((flags & MULTIPLE) > 0){
+						IShellItemArray *items;
+						hr = static_cast<IFileOpenDialog*>(dialog)->GetResults(&items);
+						if(SUCCEEDED(hr)){
+							DWORD num;
+							if(SUCCEEDED(items->GetCount(&num)) && num > 0){
+								*paths = (LPWSTR*)malloc(num * sizeof(LPWSTR));
+								if(*paths != NULL){
+									for(DWORD i = 0; i < num; i++){
+										IShellItem *item;
+										if(SUCCEEDED(items->GetItemAt(i, &item))){
+											if(SUCCEEDED(item->GetDisplayName(SIGDN_FILESYSPATH, &(*paths)[count]))){
+												count++;
+											}
+											item->Release();
+										}
+									}
+								}
+							}
+							items->Release();
+						}
+					}else{
+						IShellItem *item;
+						hr = dialog->GetResult(&item);
+						if(SUCCEEDED(hr)){
+							*paths = (LPWSTR*)malloc(sizeof(LPWSTR));
+							if(*paths != NULL && SUCCEEDED(item->GetDisplayName(SIGDN_FILESYSPATH, *paths))){
+								count = 1;
+							}
+							item->Release();
+						}
 					}
 				}
 				dialog->Release();
@@ -125,7 +164,12 @@ LPWSTR showDialog(int flags, jlong types, jint typec, LPWSTR fname){
 			free(filters);
 		}
 	}
-	return path;
+
+	if(count == 0 && *paths != NULL){
+		free(*paths);
+		*paths = NULL;
+	}
+	return count;
 }
 
 /**
@@ -160,6 +204,27 @@ jstring toString(JNIEnv *env, LPWSTR data){
 	}
 }
 
+/**
+ * Shows a dialog for selecting a single file or folder.
+ * @param env JNI environment.
+ * @param flags Determines whether to show a SAVE or OPEN dialog 
+ *        and FILES or FOLDER selection.
+ * @param types Bitwise combination of file extension filters to enable.
+ * @param typec Number of bits set in types.
+ * @param fname Default save file name, NULL for an OPEN dialog.
+ * @return The path to the selected file or folder.
+ */
+jstring showSingleDialog(JNIEnv *env, int flags, jlong types, jint typec, LPWSTR fname){
+	LPWSTR *paths;
+	if(showDialog(flags, types, typec, fname, &paths) == 0){
+		return NULL;
+	}
+
+	jstring path = toString(env, paths[0]);
+	free(paths);
+	return path;
+}
+
 /**
  * Native subroutine for dev.roanh.util.FileSelector#showNativeFileOpen
  * @param env JNI environment.
@@ -169,7 +234,34 @@ jstring toString(JNIEnv *env, LPWSTR data){
  * @return The file path of the file to open.
  */
 JNIEXPORT jstring JNICALL Java_dev_roanh_util_FileSelector_showNativeFileOpen(JNIEnv *env, jclass obj, jlong types, jint typec){
-	return toString(env, showDialog(FILES | OPEN, types, typec, NULL));
+	return showSingleDialog(env, FILES | OPEN, types, typec, NULL);
+}
+
+/**
+ * Native subroutine for dev.roanh.util.FileSelector#showNativeMultiFileOpen
+ * @param env JNI environment.
+ * @param obj Calling class.
+ * @param types Bitwise combination of file extension filter to enable.
+ * @param typec Number of bits set in 'types', if 0 then no filters will be used.
+ * @return The file paths of the files to open or NULL if no files were selected.
+ */
+JNIEXPORT jobjectArray JNICALL Java_dev_roanh_util_FileSelector_showNativeMultiFileOpen(JNIEnv *env, jclass obj, jlong types, jint typec){
+	LPWSTR *paths;
+	DWORD count = showDialog(FILES | OPEN | MULTIPLE, types, typec, NULL, &paths);
+	if(count == 0){
+		return NULL;
+	}
+
+	jobjectArray files = env->NewObjectArray(count, env->FindClass("java/lang/String"), NULL);
+	for(DWORD i = 0; i < count; i++){
+		jstring path = toString(env, paths[i]);
+		if(files != NULL){
+			env->SetObjectArrayElement(files, i, path);
+		}
+		env->DeleteLocalRef(path);
+	}
+	free(paths);
+	return files;
 }
 
 /**
@@ -179,7 +271,7 @@ JNIEXPORT jstring JNICALL Java_dev_roanh_util_FileSelector_showNativeFileOpen(JN
  * @return The folder file path to open.
  */
 JNIEXPORT jstring JNICALL Java_dev_roanh_util_FileSelector_showNativeFolderOpen(JNIEnv *env, jclass obj){
-	return toString(env, showDialog(FOLDERS | OPEN, 0, 0, NULL));
+	return showSingleDialog(env, FOLDERS | OPEN, 0, 0, NULL);
 }
 
 /**
@@ -191,7 +283,7 @@ JNIEXPORT jstring JNICALL Java_dev_roanh_util_FileSelector_showNativeFolderOpen(
  * @return The file save location.
  */
 JNIEXPORT jstring JNICALL Java_dev_roanh_util_FileSelector_showNativeFileSave(JNIEnv *env, jclass obj, jlong type, jstring name){
-	return toString(env, showDialog(FILES | SAVE, type, type == 0 ? 0 : 1, (LPWSTR)env->GetStringChars(name, FALSE)));
+	return showSingleDialog(env, FILES | SAVE, type, type == 0 ? 0 : 1, (LPWSTR)env->GetStringChars(name, FALSE));
 }
 
 /**
@@ -201,34 +293,19 @@ JNIEXPORT jstring JNICALL Java_dev_roanh_util_FileSelector_showNativeFileSave(JN
  * @param name Description of the extension to register.
  * @param ext File extension filter string.
  * @param def Default extension to use for files that match the filter.
- * @return The ID of the newly registered extension or -1 when an exception
- *         occurred, or -2 when the maximum number (64) of extensions was reached.
+ * @return The ID of the newly registered extension or -1 when an exception occurred,
+ *         or -2 when the maximum number (64) of extensions was reached.
  */
 JNIEXPORT jlong JNICALL Java_dev_roanh_util_FileSelector_registerNativeFileExtension(JNIEnv* env, jclass obj, jstring name, jstring ext, jstring def){
-	if(ext_num == 0){
-		extensions = (FILE_TYPE*)malloc(sizeof(FILE_TYPE));
-		if(extensions == NULL){
-			return -1;
-		}else{
-			ext_num = 1;
-		}
-	}else if(ext_num == 64){
+	if(ext_num == dev_roanh_util_FileSelector_NATIVE_EXTENSIONS){
 		return -2;
-	}else{
-		ext_num++;
-		FILE_TYPE *new_extensions = (FILE_TYPE*)realloc(extensions, ext_num * sizeof(FILE_TYPE));
-		if(new_extensions == NULL){
-			return -1;
-		}else{
-			extensions = new_extensions;
-		}
 	}
 	
-	extensions[ext_num - 1].ext = {
+	extensions[ext_num].ext = {
 		(wchar_t*)env->GetStringChars(name, FALSE),
 		(wchar_t*)env->GetStringChars(ext, FALSE)
 	};
-	extensions[ext_num - 1].def = (LPWSTR)env->GetStringChars(name, FALSE);
+	extensions[ext_num].def = (LPWSTR)env->GetStringChars(def, FALSE);
 
-	return jlong(1) << (ext_num - 1);
+	return jlong(1) << ext_num++;
 }
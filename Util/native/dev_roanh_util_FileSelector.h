@@ -7,6 +7,12 @@
 #ifdef __cplusplus
 extern "C" {
 #endif
+#undef dev_roanh_util_FileSelector_NATIVE_EXTENSIONS
+#define dev_roanh_util_FileSelector_NATIVE_EXTENSIONS 64L
+#undef dev_roanh_util_FileSelector_VALIDATION_CHUNK
+#define dev_roanh_util_FileSelector_VALIDATION_CHUNK 64L
+#undef dev_roanh_util_FileSelector_VALIDATION_DEADLINE
+#define dev_roanh_util_FileSelector_VALIDATION_DEADLINE 2000LL
 /*
  * Class:     dev_roanh_util_FileSelector
  * Method:    showNativeFileOpen
@@ -15,6 +21,14 @@ extern "C" {
 JNIEXPORT jstring JNICALL Java_dev_roanh_util_FileSelector_showNativeFileOpen
   (JNIEnv *, jclass, jlong, jint);
 
+/*
+ * Class:     dev_roanh_util_FileSelector
+ * Method:    showNativeMultiFileOpen
+ * Signature: (JI)[Ljava/lang/String;
+ */
+JNIEXPORT jobjectArray JNICALL Java_dev_roanh_util_FileSelector_showNativeMultiFileOpen
+  (JNIEnv *, jclass, jlong, jint);
+
 /*
  * Class:     dev_roanh_util_FileSelector
  * Method:    showNativeFolderOpen
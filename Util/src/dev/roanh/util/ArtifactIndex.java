@@ -0,0 +1,277 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Immutable index of the versions of all Maven artifacts on the class path.
+ * The index is built by scanning every class path element for
+ * <code>META-INF/maven/&lt;group&gt;/&lt;artifact&gt;/pom.properties</code>
+ * entries, with all elements being scanned in parallel using a parallel
+ * stream rather than the shared background executor. When an artifact
+ * is present more than once the first occurrence on the class path is used.
+ * @author Roan
+ * @see Util#readArtifactVersion(String, String)
+ */
+public final class ArtifactIndex{
+	/**
+	 * The directory containing the Maven metadata of artifacts.
+	 */
+	private static final String MAVEN_DIR = "META-INF/maven/";
+	/**
+	 * The indexed artifact versions by group and artifact ID.
+	 */
+	private final Map<String, Map<String, String>> artifacts;
+
+	/**
+	 * Constructs a new artifact index.
+	 * @param artifacts The artifact versions by group and artifact ID.
+	 */
+	private ArtifactIndex(Map<String, Map<String, String>> artifacts){
+		this.artifacts = artifacts;
+	}
+
+	/**
+	 * Gets the index for the system class path and the context
+	 * class loader of the thread that first requests the index.
+	 * The index is built on first use and then reused.
+	 * @return The shared artifact index.
+	 */
+	public static final ArtifactIndex getDefault(){
+		return DefaultHolder.INDEX;
+	}
+
+	/**
+	 * Builds a new index for the system class path and the
+	 * class path elements of the given class loaders. The calling
+	 * thread takes part in scanning, so this is safe to call from
+	 * tasks running on the shared background executor.
+	 * @param loaders The class loaders to index.
+	 * @return The constructed artifact index.
+	 */
+	public static final ArtifactIndex build(ClassLoader... loaders){
+		Set<Path> roots = new LinkedHashSet<>();
+		for(String element : System.getProperty("java.class.path", "").split(File.pathSeparator)){
+			if(!element.isEmpty()){
+				roots.add(Paths.get(element).toAbsolutePath().normalize());
+			}
+		}
+
+		for(ClassLoader loader : loaders){
+			findRoots(loader, roots);
+		}
+
+		List<Map<String, Map<String, String>>> scans = roots.parallelStream().map(ArtifactIndex::scan).collect(Collectors.toList());
+
+		Map<String, Map<String, String>> artifacts = new LinkedHashMap<>();
+		for(Map<String, Map<String, String>> scan : scans){
+			for(Entry<String, Map<String, String>> group : scan.entrySet()){
+				Map<String, String> versions = artifacts.computeIfAbsent(group.getKey(), k->new LinkedHashMap<>());
+				group.getValue().forEach(versions::putIfAbsent);
+			}
+		}
+
+		for(Entry<String, Map<String, String>> group : artifacts.entrySet()){
+			group.setValue(Collections.unmodifiableMap(group.getValue()));
+		}
+
+		return new ArtifactIndex(Collections.unmodifiableMap(artifacts));
+	}
+
+	/**
+	 * Gets the version of the given artifact.
+	 * @param group The group ID of the artifact.
+	 * @param artifact The artifact ID of the artifact.
+	 * @return The version of the artifact or <code>null</code>
+	 *         if the artifact is not in this index.
+	 */
+	public String getVersion(String group, String artifact){
+		Map<String, String> versions = artifacts.get(group);
+		return versions == null ? null : versions.get(artifact);
+	}
+
+	/**
+	 * Gets all indexed artifacts.
+	 * @return An unmodifiable map from group ID to a map
+	 *         from artifact ID to artifact version.
+	 */
+	public Map<String, Map<String, String>> getArtifacts(){
+		return artifacts;
+	}
+
+	/**
+	 * Gets the number of artifacts in this index.
+	 * @return The number of indexed artifacts.
+	 */
+	public int size(){
+		return artifacts.values().stream().mapToInt(Map::size).sum();
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder buffer = new StringBuilder();
+		artifacts.forEach((group, versions)->versions.forEach((artifact, version)->{
+			buffer.append(group).append(':').append(artifact).append(':').append(version).append(System.lineSeparator());
+		}));
+		return buffer.toString();
+	}
+
+	/**
+	 * Adds the class path elements of the given class loader
+	 * and its parents to the given set of roots.
+	 * @param loader The class loader to find the roots of.
+	 * @param roots The set to add found roots to.
+	 */
+	private static final void findRoots(ClassLoader loader, Set<Path> roots){
+		for(ClassLoader current = loader; current != null; current = current.getParent()){
+			if(current instanceof URLClassLoader){
+				for(URL url : ((URLClassLoader)current).getURLs()){
+					addRoot(url, roots);
+				}
+			}
+		}
+
+		if(loader != null){
+			try{
+				Enumeration<URL> manifests = loader.getResources("META-INF/MANIFEST.MF");
+				while(manifests.hasMoreElements()){
+					URL url = manifests.nextElement();
+					if(url.getProtocol().equals("jar")){
+						addRoot(((JarURLConnection)url.openConnection()).getJarFileURL(), roots);
+					}
+				}
+			}catch(IOException | ClassCastException ignore){
+				//Not all class loaders expose their elements
+			}
+		}
+	}
+
+	/**
+	 * Adds the given URL to the given set of roots
+	 * if it refers to the local file system.
+	 * @param url The URL to add.
+	 * @param roots The set to add the root to.
+	 */
+	private static final void addRoot(URL url, Set<Path> roots){
+		if(url.getProtocol().equals("file")){
+			try{
+				roots.add(Paths.get(url.toURI()).toAbsolutePath().normalize());
+			}catch(URISyntaxException | IllegalArgumentException ignore){
+				//Not a valid path
+			}
+		}
+	}
+
+	/**
+	 * Scans a single class path element for artifacts.
+	 * @param root The jar file or directory to scan.
+	 * @return The found artifact versions by group and artifact ID.
+	 */
+	private static final Map<String, Map<String, String>> scan(Path root){
+		Map<String, Map<String, String>> found = new LinkedHashMap<>();
+		try{
+			if(Files.isDirectory(root)){
+				Path maven = root.resolve(MAVEN_DIR);
+				if(Files.isDirectory(maven)){
+					try(Stream<Path> files = Files.walk(maven, 3)){
+						for(Path file : (Iterable<Path>)files::iterator){
+							if(file.getNameCount() - maven.getNameCount() == 3 && file.endsWith("pom.properties")){
+								try(InputStream in = Files.newInputStream(file)){
+									index(found, in, file.getParent().getParent().getFileName().toString(), file.getParent().getFileName().toString());
+								}
+							}
+						}
+					}
+				}
+			}else if(Files.isRegularFile(root)){
+				try(JarFile jar = new JarFile(root.toFile())){
+					Enumeration<JarEntry> entries = jar.entries();
+					while(entries.hasMoreElements()){
+						JarEntry entry = entries.nextElement();
+						String name = entry.getName();
+						if(name.startsWith(MAVEN_DIR) && name.endsWith("/pom.properties")){
+							String[] parts = name.substring(MAVEN_DIR.length()).split("/");
+							if(parts.length == 3){
+								try(InputStream in = jar.getInputStream(entry)){
+									index(found, in, parts[0], parts[1]);
+								}
+							}
+						}
+					}
+				}
+			}
+		}catch(IOException | RuntimeException ignore){
+			//Skip elements that cannot be read
+		}
+		return found;
+	}
+
+	/**
+	 * Reads a single <code>pom.properties</code> file into the given index.
+	 * @param found The index to add the artifact to.
+	 * @param in The stream to read the properties from.
+	 * @param group The group ID derived from the file location.
+	 * @param artifact The artifact ID derived from the file location.
+	 * @throws IOException When an IOException occurs.
+	 */
+	private static final void index(Map<String, Map<String, String>> found, InputStream in, String group, String artifact) throws IOException{
+		Properties data = new Properties();
+		data.load(in);
+		String version = data.getProperty("version");
+		if(version != null){
+			Map<String, String> versions = found.computeIfAbsent(data.getProperty("groupId", group).trim(), k->new LinkedHashMap<>());
+			versions.putIfAbsent(data.getProperty("artifactId", artifact).trim(), version.trim());
+		}
+	}
+
+	/**
+	 * Holder for the default index so that it is
+	 * only built when first requested.
+	 * @author Roan
+	 */
+	private static final class DefaultHolder{
+		/**
+		 * The default artifact index.
+		 */
+		private static final ArtifactIndex INDEX = build(Thread.currentThread().getContextClassLoader(), ClassLoader.getSystemClassLoader());
+	}
+}
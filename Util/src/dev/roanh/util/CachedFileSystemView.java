@@ -0,0 +1,539 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.swing.Icon;
+import javax.swing.filechooser.FileSystemView;
+
+import dev.roanh.util.DirectoryWatcher.Registration;
+
+/**
+ * File system view for the Swing file chooser that lists directories
+ * using a single directory stream and reads the attributes of all entries
+ * while listing. The returned files answer attribute queries such as
+ * {@link File#isDirectory()} and {@link File#length()} from these attributes,
+ * so rendering a large directory on the event dispatch thread does not
+ * access the file system for every entry. Recent listings and icons are
+ * cached, so returning to a directory is instant. Cached listings are
+ * invalidated when a change to the directory is reported by the shared
+ * {@link DirectoryWatcher} or, for directories that cannot be watched,
+ * when the modification time of the directory changes.
+ * <p>
+ * All other queries are delegated to the platform file system view, which is
+ * also used to list virtual folders that are not part of the file system.
+ * @author Roan
+ */
+final class CachedFileSystemView extends FileSystemView{
+	/**
+	 * The maximum number of cached directory listings.
+	 */
+	private static final int LISTING_CACHE_SIZE = 16;
+	/**
+	 * The maximum number of cached icons.
+	 */
+	private static final int ICON_CACHE_SIZE = 1024;
+	/**
+	 * True if hidden files are identified by their DOS attributes.
+	 */
+	private static final boolean DOS = System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("windows");
+	/**
+	 * The platform file system view to delegate to.
+	 */
+	private final FileSystemView delegate = FileSystemView.getFileSystemView();
+	/**
+	 * Recently used directory listings by directory, least recently used first.
+	 */
+	private final Map<Path, Listing> listings = new LinkedHashMap<Path, Listing>(16, 0.75F, true){
+		/**
+		 * Serial ID.
+		 */
+		private static final long serialVersionUID = -4227961186263364811L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, Listing> eldest){
+			if(size() > LISTING_CACHE_SIZE){
+				eldest.getValue().close();
+				return true;
+			}
+			return false;
+		}
+	};
+	/**
+	 * Recently used icons by file, least recently used first.
+	 */
+	private final Map<File, Icon> icons = new LinkedHashMap<File, Icon>(16, 0.75F, true){
+		/**
+		 * Serial ID.
+		 */
+		private static final long serialVersionUID = -8100283357005006219L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, Icon> eldest){
+			return size() > ICON_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Gets the shared cached file system view.
+	 * @return The shared cached file system view.
+	 */
+	static final CachedFileSystemView getInstance(){
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * Lists the given directory and loads the icons of its entries into
+	 * the caches, so a file chooser opening in the directory is shown
+	 * without delay. This is meant to be called off the event dispatch thread.
+	 * @param dir The directory to preload.
+	 */
+	void preload(File dir){
+		File[] files = getFiles(dir, true);
+		for(int i = 0; i < files.length && i < ICON_CACHE_SIZE; i++){
+			getSystemIcon(files[i]);
+		}
+	}
+
+	@Override
+	public File[] getFiles(File dir, boolean useFileHiding){
+		Path path;
+		try{
+			path = dir.toPath().toAbsolutePath().normalize();
+		}catch(InvalidPathException e){
+			return delegate.getFiles(dir, useFileHiding);
+		}
+
+		Listing listing;
+		synchronized(listings){
+			listing = listings.get(path);
+		}
+
+		try{
+			if(listing == null || !listing.isValid()){
+				listing = new Listing(path);
+				synchronized(listings){
+					Listing old = listings.put(path, listing);
+					if(old != null){
+						old.close();
+					}
+				}
+			}
+		}catch(IOException | DirectoryIteratorException | InvalidPathException | SecurityException e){
+			//Virtual folders and inaccessible directories
+			return delegate.getFiles(dir, useFileHiding);
+		}
+
+		List<File> files = new ArrayList<>(listing.files.length);
+		for(CachedFile file : listing.files){
+			if(!useFileHiding || !file.hidden){
+				files.add(file);
+			}
+		}
+		return files.toArray(new File[files.size()]);
+	}
+
+	@Override
+	public Icon getSystemIcon(File f){
+		if(f == null){
+			return null;
+		}
+
+		synchronized(icons){
+			Icon icon = icons.get(f);
+			if(icon != null){
+				return icon;
+			}
+		}
+
+		Icon icon = delegate.getSystemIcon(f);
+		if(icon != null){
+			synchronized(icons){
+				icons.put(f, icon);
+			}
+		}
+		return icon;
+	}
+
+	@Override
+	public File createNewFolder(File containingDir) throws IOException{
+		File folder = delegate.createNewFolder(containingDir);
+		invalidate(containingDir.toPath().toAbsolutePath().normalize());
+		return folder;
+	}
+
+	@Override
+	public boolean isRoot(File f){
+		return delegate.isRoot(f);
+	}
+
+	@Override
+	public Boolean isTraversable(File f){
+		return f instanceof CachedFile ? ((CachedFile)f).directory : delegate.isTraversable(f);
+	}
+
+	@Override
+	public String getSystemDisplayName(File f){
+		return delegate.getSystemDisplayName(f);
+	}
+
+	@Override
+	public String getSystemTypeDescription(File f){
+		return delegate.getSystemTypeDescription(f);
+	}
+
+	@Override
+	public boolean isParent(File folder, File file){
+		return delegate.isParent(folder, file);
+	}
+
+	@Override
+	public File getChild(File parent, String fileName){
+		return delegate.getChild(parent, fileName);
+	}
+
+	@Override
+	public boolean isFileSystem(File f){
+		return delegate.isFileSystem(f);
+	}
+
+	@Override
+	public boolean isHiddenFile(File f){
+		return f instanceof CachedFile ? ((CachedFile)f).hidden : delegate.isHiddenFile(f);
+	}
+
+	@Override
+	public boolean isFileSystemRoot(File dir){
+		return delegate.isFileSystemRoot(dir);
+	}
+
+	@Override
+	public boolean isDrive(File dir){
+		return delegate.isDrive(dir);
+	}
+
+	@Override
+	public boolean isFloppyDrive(File dir){
+		return delegate.isFloppyDrive(dir);
+	}
+
+	@Override
+	public boolean isComputerNode(File dir){
+		return delegate.isComputerNode(dir);
+	}
+
+	@Override
+	public File[] getRoots(){
+		return delegate.getRoots();
+	}
+
+	@Override
+	public File getHomeDirectory(){
+		return delegate.getHomeDirectory();
+	}
+
+	@Override
+	public File getDefaultDirectory(){
+		return delegate.getDefaultDirectory();
+	}
+
+	@Override
+	public File createFileObject(File dir, String filename){
+		return delegate.createFileObject(dir, filename);
+	}
+
+	@Override
+	public File createFileObject(String path){
+		return delegate.createFileObject(path);
+	}
+
+	@Override
+	public File getParentDirectory(File dir){
+		return delegate.getParentDirectory(dir);
+	}
+
+	/**
+	 * Removes the cached listing of the given directory
+	 * and the cached icons of the files it contained.
+	 * @param dir The directory to invalidate.
+	 */
+	private void invalidate(Path dir){
+		Listing listing;
+		synchronized(listings){
+			listing = listings.remove(dir);
+		}
+
+		if(listing != null){
+			listing.close();
+			synchronized(icons){
+				for(CachedFile file : listing.files){
+					icons.remove(file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Cached listing of a single directory.
+	 * @author Roan
+	 */
+	private final class Listing{
+		/**
+		 * The directory that was listed.
+		 */
+		private final Path dir;
+		/**
+		 * The files in the directory.
+		 */
+		private final CachedFile[] files;
+		/**
+		 * The last modified time of the directory when it was listed.
+		 */
+		private final FileTime modified;
+		/**
+		 * The watch registration for the directory or
+		 * <code>null</code> if it is not watched.
+		 */
+		private final Registration registration;
+
+		/**
+		 * Lists the given directory. The directory is watched before it
+		 * is listed so that no changes made while listing are missed.
+		 * @param dir The directory to list.
+		 * @throws IOException When an IOException occurs.
+		 */
+		private Listing(Path dir) throws IOException{
+			this.dir = dir;
+			registration = DirectoryWatcher.watch(dir, CachedFileSystemView.this::invalidate, true);
+			try{
+				modified = Files.getLastModifiedTime(dir);
+
+				List<CachedFile> entries = new ArrayList<>();
+				try(DirectoryStream<Path> stream = Files.newDirectoryStream(dir)){
+					for(Path path : stream){
+						entries.add(read(path));
+					}
+				}
+				files = entries.toArray(new CachedFile[entries.size()]);
+			}catch(IOException | RuntimeException e){
+				close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Checks if this listing is still up to date.
+		 * @return True if the listing is still up to date.
+		 */
+		private boolean isValid(){
+			if(registration != null){
+				return registration.isActive();
+			}
+
+			try{
+				return modified.equals(Files.getLastModifiedTime(dir));
+			}catch(IOException e){
+				return false;
+			}
+		}
+
+		/**
+		 * Checks if this listing is known to be up to date without
+		 * accessing the file system, which is only the case while
+		 * the directory is watched and no change was reported.
+		 * @return True if this listing is known to be up to date.
+		 */
+		private boolean isWatched(){
+			return registration != null && registration.isActive();
+		}
+
+		/**
+		 * Stops watching the directory of this listing.
+		 */
+		private void close(){
+			if(registration != null){
+				registration.cancel();
+			}
+		}
+
+		/**
+		 * Reads the attributes of the given directory entry. Entries
+		 * returned by a directory stream on Windows carry the attributes
+		 * read while listing, so no additional file system access is made.
+		 * @param path The directory entry.
+		 * @return The cached file for the entry.
+		 */
+		private CachedFile read(Path path){
+			try{
+				return read(path, false);
+			}catch(IOException | SecurityException e){
+				try{
+					//Broken links
+					return read(path, true);
+				}catch(IOException | SecurityException ignore){
+					return new CachedFile(this, path, false, false, 0L, 0L, false);
+				}
+			}
+		}
+
+		/**
+		 * Reads the attributes of the given directory entry.
+		 * @param path The directory entry.
+		 * @param link True to read the attributes of a symbolic
+		 *        link itself instead of those of its target.
+		 * @return The cached file for the entry.
+		 * @throws IOException When an IOException occurs.
+		 */
+		private CachedFile read(Path path, boolean link) throws IOException{
+			LinkOption[] options = link ? new LinkOption[]{LinkOption.NOFOLLOW_LINKS} : new LinkOption[0];
+			BasicFileAttributes attrs;
+			boolean hidden;
+			if(DOS){
+				DosFileAttributes dos = Files.readAttributes(path, DosFileAttributes.class, options);
+				hidden = dos.isHidden();
+				attrs = dos;
+			}else{
+				attrs = Files.readAttributes(path, BasicFileAttributes.class, options);
+				hidden = path.getFileName().toString().startsWith(".");
+			}
+			return new CachedFile(this, path, attrs.isDirectory(), attrs.isRegularFile(), attrs.size(), attrs.lastModifiedTime().toMillis(), hidden);
+		}
+	}
+
+	/**
+	 * File with attributes read while listing its directory.
+	 * @author Roan
+	 */
+	private static final class CachedFile extends File{
+		/**
+		 * Serial ID.
+		 */
+		private static final long serialVersionUID = 3317450993409524838L;
+		/**
+		 * The listing this file was read for, <code>null</code>
+		 * if this file was deserialized.
+		 */
+		private final transient Listing listing;
+		/**
+		 * True if this file is a directory.
+		 */
+		private final boolean directory;
+		/**
+		 * True if this file is a normal file.
+		 */
+		private final boolean file;
+		/**
+		 * The size of this file in bytes.
+		 */
+		private final long size;
+		/**
+		 * The last modified time of this file in milliseconds.
+		 */
+		private final long modified;
+		/**
+		 * True if this file is hidden.
+		 */
+		private final boolean hidden;
+
+		/**
+		 * Constructs a new cached file.
+		 * @param listing The listing the file was read for.
+		 * @param path The path of the file.
+		 * @param directory True if the file is a directory.
+		 * @param file True if the file is a normal file.
+		 * @param size The size of the file in bytes.
+		 * @param modified The last modified time of the file in milliseconds.
+		 * @param hidden True if the file is hidden.
+		 */
+		private CachedFile(Listing listing, Path path, boolean directory, boolean file, long size, long modified, boolean hidden){
+			super(path.toString());
+			this.listing = listing;
+			this.directory = directory;
+			this.file = file;
+			this.size = size;
+			this.modified = modified;
+			this.hidden = hidden;
+		}
+
+		@Override
+		public boolean isDirectory(){
+			return directory;
+		}
+
+		@Override
+		public boolean isFile(){
+			return file;
+		}
+
+		/**
+		 * Checks if this file exists. Files were listed so they existed
+		 * when their listing was made, as long as no change to their
+		 * directory was reported since then that is still the case.
+		 * Otherwise the file system is checked.
+		 * @return True if this file exists.
+		 */
+		@Override
+		public boolean exists(){
+			return (listing != null && listing.isWatched()) || super.exists();
+		}
+
+		@Override
+		public long length(){
+			return size;
+		}
+
+		@Override
+		public long lastModified(){
+			return modified;
+		}
+
+		@Override
+		public boolean isHidden(){
+			return hidden;
+		}
+	}
+
+	/**
+	 * Holder for the shared instance, so the caches
+	 * are only created once the view is first used.
+	 * @author Roan
+	 */
+	private static final class InstanceHolder{
+		/**
+		 * The shared cached file system view.
+		 */
+		private static final CachedFileSystemView INSTANCE = new CachedFileSystemView();
+	}
+}
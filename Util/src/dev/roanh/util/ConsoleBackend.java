@@ -0,0 +1,452 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Backend for dialogs that prompts on the console instead of showing
+ * windows, so that no part of the AWT toolkit is ever initialised. The
+ * backend is used when the {@value #PROPERTY} system property is set to
+ * <code>true</code> or, when the property is not set, when the JVM is
+ * headless.
+ * <p>
+ * Paths can be completed by typing part of a path followed by a tab
+ * and enter. A unique completion is filled in directly, otherwise all
+ * candidates are listed. The completed path is printed and anything
+ * typed next is appended to it. Directory listings used for completion
+ * are cached until the directory is modified.
+ * @author Roan
+ * @see FileSelector
+ * @see Dialog
+ */
+final class ConsoleBackend{
+	/**
+	 * The system property used to enable or disable the console backend.
+	 */
+	static final String PROPERTY = "dev.roanh.util.console";
+	/**
+	 * The maximum number of cached directory listings.
+	 */
+	private static final int CACHE_SIZE = 32;
+	/**
+	 * The maximum number of completion candidates to list.
+	 */
+	private static final int MAX_CANDIDATES = 50;
+	/**
+	 * True if file names are compared case insensitively.
+	 */
+	private static final boolean IGNORE_CASE = System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("windows");
+	/**
+	 * Recently used directory listings, least recently used first.
+	 */
+	private static final Map<Path, Listing> listings = new LinkedHashMap<Path, Listing>(16, 0.75F, true){
+		/**
+		 * Serial ID.
+		 */
+		private static final long serialVersionUID = 2455286375582914395L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, Listing> eldest){
+			return size() > CACHE_SIZE;
+		}
+	};
+	/**
+	 * The stream prompts are written to.
+	 */
+	private static final PrintStream out = System.out;
+	/**
+	 * The reader user input is read from, created on first use.
+	 */
+	private static BufferedReader in = null;
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private ConsoleBackend(){
+	}
+
+	/**
+	 * Checks if the console backend should be used.
+	 * @return True if the console backend should be used.
+	 */
+	static final boolean isEnabled(){
+		String value = System.getProperty(PROPERTY);
+		return value == null ? GraphicsEnvironment.isHeadless() : Boolean.parseBoolean(value.trim());
+	}
+
+	/**
+	 * Prompts for a file to open.
+	 * @param filter The filter files have to match.
+	 * @return The selected file or <code>null</code> if cancelled.
+	 */
+	static final synchronized Path openFile(Predicate<Path> filter){
+		while(true){
+			Path file = readPath("File to open", filter);
+			if(file == null || (Files.isRegularFile(file) && filter.test(file))){
+				return file;
+			}
+			out.println(Files.exists(file) ? "Not a supported file: " + file : "The given file does not exist.");
+		}
+	}
+
+	/**
+	 * Prompts for multiple files to open, one per line until an empty line.
+	 * @param filter The filter files have to match.
+	 * @return The selected files, empty if none were selected.
+	 */
+	static final synchronized List<Path> openFiles(Predicate<Path> filter){
+		out.println("Enter the files to open, one per line, followed by an empty line.");
+		List<Path> files = new ArrayList<>();
+		Path file;
+		while((file = readPath("File " + (files.size() + 1), filter)) != null){
+			if(Files.isRegularFile(file) && filter.test(file)){
+				files.add(file);
+			}else{
+				out.println(Files.exists(file) ? "Not a supported file: " + file : "The given file does not exist.");
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Prompts for a folder to open.
+	 * @return The selected folder or <code>null</code> if cancelled.
+	 */
+	static final synchronized Path openFolder(){
+		while(true){
+			Path folder = readPath("Folder to open", path->false);
+			if(folder == null || Files.isDirectory(folder)){
+				return folder;
+			}
+			out.println("The given folder does not exist.");
+		}
+	}
+
+	/**
+	 * Prompts for a file to save to.
+	 * @param name The suggested file name.
+	 * @param extension The extension to enforce including the
+	 *        leading dot, or an empty string for any extension.
+	 * @return The selected file or <code>null</code> if cancelled.
+	 */
+	static final synchronized Path saveFile(String name, String extension){
+		while(true){
+			Path file = readPath("Save as (suggested: " + name + extension + ")", path->true);
+			if(file == null){
+				return null;
+			}
+
+			if(Files.isDirectory(file)){
+				file = file.resolve(name + extension);
+			}
+
+			Path fileName = file.getFileName();
+			if(fileName != null && !fileName.toString().toLowerCase(Locale.ROOT).endsWith(extension)){
+				file = file.resolveSibling(fileName.toString() + extension);
+			}
+
+			if(!Files.exists(file) || showDialog(file + " already exists.\nDo you want to replace it?", new String[]{"Yes", "No"}) == 0){
+				return file;
+			}
+		}
+	}
+
+	/**
+	 * Shows the given message with the given options and waits for
+	 * the user to pick an option. If there is only a single option
+	 * the message is printed without waiting for input.
+	 * @param form The message to show, arrays are shown one element per line.
+	 * @param options The options to choose from.
+	 * @return The index of the chosen option or -1 if no option was chosen.
+	 */
+	static final synchronized int showDialog(Object form, String[] options){
+		String title = Dialog.getDialogTitle();
+		if(title != null && !title.isEmpty()){
+			out.println("[" + title + "]");
+		}
+
+		if(form instanceof Object[]){
+			for(Object line : (Object[])form){
+				out.println(line);
+			}
+		}else{
+			out.println(form);
+		}
+
+		if(options.length <= 1){
+			return options.length - 1;
+		}
+
+		while(true){
+			StringBuilder prompt = new StringBuilder();
+			for(int i = 0; i < options.length; i++){
+				prompt.append(i == 0 ? "" : " ").append(i + 1).append(") ").append(options[i]);
+			}
+			out.print(prompt.append(": "));
+			out.flush();
+
+			String line = readLine();
+			if(line == null || line.trim().isEmpty()){
+				return -1;
+			}
+
+			line = line.trim();
+			for(int i = 0; i < options.length; i++){
+				if(options[i].equalsIgnoreCase(line) || String.valueOf(i + 1).equals(line) || (line.length() == 1 && options[i].toLowerCase(Locale.ROOT).startsWith(line.toLowerCase(Locale.ROOT)))){
+					return i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prompts for a single path with tab completion.
+	 * @param prompt The prompt to show.
+	 * @param filter Filter for the files offered as completions,
+	 *        directories are always offered.
+	 * @return The entered path or <code>null</code> if
+	 *         the input was empty or ended.
+	 */
+	private static final Path readPath(String prompt, Predicate<Path> filter){
+		String prefix = "";
+		out.print(prompt + " (tab and enter to complete, empty to cancel): ");
+		while(true){
+			out.flush();
+			String line = readLine();
+			if(line == null){
+				return null;
+			}
+
+			line = prefix + line;
+			int tab = line.indexOf('\t');
+			if(tab == -1){
+				line = line.trim();
+				try{
+					return line.isEmpty() ? null : resolve(line);
+				}catch(InvalidPathException e){
+					out.print("Invalid path: " + e.getMessage() + "\n" + prompt + ": ");
+					prefix = "";
+					continue;
+				}
+			}
+
+			prefix = complete(line.substring(0, tab), filter);
+			out.print(prompt + ": " + prefix);
+		}
+	}
+
+	/**
+	 * Completes the given partial path as far as possible and
+	 * lists all candidates if there is more than one.
+	 * @param text The partial path to complete.
+	 * @param filter Filter for the files offered as completions.
+	 * @return The completed partial path.
+	 */
+	private static final String complete(String text, Predicate<Path> filter){
+		String dirText;
+		String partial;
+		int split = Math.max(text.lastIndexOf('/'), text.lastIndexOf(File.separatorChar));
+		if(split == -1){
+			dirText = "";
+			partial = text;
+		}else{
+			dirText = text.substring(0, split + 1);
+			partial = text.substring(split + 1);
+		}
+
+		List<String> candidates = new ArrayList<>();
+		try{
+			Path dir = resolve(dirText.isEmpty() ? "." : dirText);
+			for(Listing.Entry entry : getListing(dir)){
+				if(matches(entry.name, partial) && (entry.directory || filter.test(dir.resolve(entry.name)))){
+					candidates.add(entry.directory ? entry.name + File.separator : entry.name);
+				}
+			}
+		}catch(IOException | DirectoryIteratorException | InvalidPathException e){
+			out.println();
+			out.println("Cannot list " + (dirText.isEmpty() ? "." : dirText));
+			return text;
+		}
+
+		if(candidates.isEmpty()){
+			out.println();
+			out.println("No matches");
+			return text;
+		}else if(candidates.size() == 1){
+			return dirText + candidates.get(0);
+		}
+
+		out.println();
+		for(int i = 0; i < candidates.size() && i < MAX_CANDIDATES; i++){
+			out.println("  " + candidates.get(i));
+		}
+		if(candidates.size() > MAX_CANDIDATES){
+			out.println("  ... and " + (candidates.size() - MAX_CANDIDATES) + " more");
+		}
+
+		String common = candidates.get(0);
+		for(String candidate : candidates){
+			int len = 0;
+			while(len < common.length() && len < candidate.length() && (IGNORE_CASE ? Character.toLowerCase(common.charAt(len)) == Character.toLowerCase(candidate.charAt(len)) : common.charAt(len) == candidate.charAt(len))){
+				len++;
+			}
+			common = common.substring(0, len);
+		}
+		return dirText + (common.length() > partial.length() ? common : partial);
+	}
+
+	/**
+	 * Checks if the given file name starts with the given partial name.
+	 * @param name The file name to check.
+	 * @param partial The partial name.
+	 * @return True if the name starts with the partial name.
+	 */
+	private static final boolean matches(String name, String partial){
+		return name.regionMatches(IGNORE_CASE, 0, partial, 0, partial.length());
+	}
+
+	/**
+	 * Gets the listing of the given directory, reusing
+	 * the cached listing if the directory was not modified.
+	 * @param dir The directory to list.
+	 * @return The entries in the directory sorted by name.
+	 * @throws IOException When an IOException occurs.
+	 */
+	private static final List<Listing.Entry> getListing(Path dir) throws IOException{
+		Path key = dir.toAbsolutePath().normalize();
+		FileTime modified = Files.getLastModifiedTime(key);
+		Listing listing = listings.get(key);
+		if(listing == null || !listing.modified.equals(modified)){
+			listing = new Listing(key, modified);
+			listings.put(key, listing);
+		}
+		return listing.entries;
+	}
+
+	/**
+	 * Resolves the given path text, expanding a leading tilde
+	 * to the home directory of the user.
+	 * @param text The path text.
+	 * @return The resolved path.
+	 * @throws InvalidPathException When the path is invalid.
+	 */
+	private static final Path resolve(String text) throws InvalidPathException{
+		if(text.equals("~") || text.startsWith("~/") || text.startsWith("~" + File.separator)){
+			return Paths.get(System.getProperty("user.home") + text.substring(1));
+		}
+		return Paths.get(text);
+	}
+
+	/**
+	 * Reads a single line of input.
+	 * @return The line that was read or <code>null</code>
+	 *         if the end of the input was reached.
+	 */
+	private static final String readLine(){
+		try{
+			if(in == null){
+				in = new BufferedReader(new InputStreamReader(System.in));
+			}
+			return in.readLine();
+		}catch(IOException e){
+			return null;
+		}
+	}
+
+	/**
+	 * Cached listing of a single directory.
+	 * @author Roan
+	 */
+	private static final class Listing{
+		/**
+		 * The last modified time of the directory when it was listed.
+		 */
+		private final FileTime modified;
+		/**
+		 * The entries in the directory sorted by name.
+		 */
+		private final List<Entry> entries;
+
+		/**
+		 * Lists the given directory.
+		 * @param dir The directory to list.
+		 * @param modified The last modified time of the directory.
+		 * @throws IOException When an IOException occurs.
+		 */
+		private Listing(Path dir, FileTime modified) throws IOException{
+			this.modified = modified;
+			List<Entry> entries = new ArrayList<>();
+			try(DirectoryStream<Path> stream = Files.newDirectoryStream(dir)){
+				for(Path path : stream){
+					Path name = path.getFileName();
+					if(name != null){
+						entries.add(new Entry(name.toString(), Files.isDirectory(path)));
+					}
+				}
+			}
+			entries.sort((a, b)->IGNORE_CASE ? a.name.compareToIgnoreCase(b.name) : a.name.compareTo(b.name));
+			this.entries = Collections.unmodifiableList(entries);
+		}
+
+		/**
+		 * A single directory entry.
+		 * @author Roan
+		 */
+		private static final class Entry{
+			/**
+			 * The name of the entry.
+			 */
+			private final String name;
+			/**
+			 * True if the entry is a directory.
+			 */
+			private final boolean directory;
+
+			/**
+			 * Constructs a new entry.
+			 * @param name The name of the entry.
+			 * @param directory True if the entry is a directory.
+			 */
+			private Entry(String name, boolean directory){
+				this.name = name;
+				this.directory = directory;
+			}
+		}
+	}
+}
@@ -18,9 +18,13 @@
  */
 package dev.roanh.util;
 
+import java.awt.Component;
 import java.awt.Dialog.ModalityType;
 import java.awt.Image;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import javax.swing.ActionMap;
 import javax.swing.JDialog;
@@ -168,6 +172,9 @@ public final class Dialog{
 	
 	/**
 	 * Shows the given object as a dialog with the given close options.
+	 * When the console backend of the {@link FileSelector} is used and
+	 * the given form is not a component, the form is printed to the
+	 * console instead and the option is read from the console.
 	 * @param form The dialog to display.
 	 * @param resizable Whether or not the dialog can be resized.
 	 * @param modalType The modality type for the dialog. Of primary
@@ -180,17 +187,28 @@ public final class Dialog{
 	 *         or -1 if the dialog window was closed.
 	 */
 	public static final int showDialog(Object form, boolean resizable, ModalityType modalType, String[] options){
+		if(ConsoleBackend.isEnabled() && !(form instanceof Component)){
+			FlightEvent event = FlightEvent.begin(FlightEvent.DIALOG_SHOW).set("title", title).set("modality", modalType.name());
+			int option = ConsoleBackend.showDialog(form, options);
+			event.set("option", option).commit();
+			return option;
+		}
+		
 		JOptionPane optionPane = new JOptionPane(form, JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, options, 0);
 		JDialog dialog = buildDialog(optionPane, resizable, modalType);
+		FlightEvent event = FlightEvent.begin(FlightEvent.DIALOG_SHOW).set("title", title).set("modality", modalType.name());
 		dialog.setVisible(true);
 		
+		int option = -1;
 		for(int i = 0; i < options.length; i++){
 			if(options[i].equals(optionPane.getValue())){
-				return i;
+				option = i;
+				break;
 			}
 		}
 
-		return -1;
+		event.set("option", option).commit();
+		return option;
 	}
 	
 	/**
@@ -226,6 +244,7 @@ public final class Dialog{
 	 * @return The constructed dialog.
 	 */
 	private static final JDialog buildDialog(JOptionPane pane, boolean resizable, ModalityType modalType){
+		FlightEvent event = FlightEvent.begin(FlightEvent.DIALOG_BUILD).set("title", title).set("modality", modalType.name());
 		pane.setActionMap(new ActionMap());
 		JDialog dialog = pane.createDialog(getParentFrame(), title);
 		dialog.setResizable(resizable);
@@ -233,6 +252,7 @@ public final class Dialog{
 		dialog.setModalityType(modalType);
 		dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
 		dialog.pack();
+		event.commit();
 		return dialog;
 	}
 	
@@ -251,6 +271,32 @@ public final class Dialog{
 		return FileSelector.showFileOpenDialog(filters);
 	}
 	
+	/**
+	 * Opens a file open dialog that allows selecting multiple files.
+	 * @param filters The file extension filters to use. If none
+	 *        are provided then any extension is allowed.
+	 * @return The files that were selected, these files will exist on
+	 *         the file system. If the operation was cancelled an empty
+	 *         list is returned.
+	 * @see FileSelector#showMultiFileOpenDialog(FileExtension...)
+	 */
+	public static final List<Path> showMultiFileOpenDialog(FileExtension... filters){
+		return FileSelector.showMultiFileOpenDialog(filters);
+	}
+	
+	/**
+	 * Opens a file open dialog that allows selecting multiple
+	 * files without blocking the calling thread.
+	 * @param consumer The consumer to pass valid files to as soon as they were checked.
+	 * @param filters The file extension filters to use. If none
+	 *        are provided then any extension is allowed.
+	 * @return A future that completes with all valid files that were selected.
+	 * @see FileSelector#showMultiFileOpenDialogAsync(Consumer, FileExtension...)
+	 */
+	public static final CompletableFuture<List<Path>> showMultiFileOpenDialogAsync(Consumer<Path> consumer, FileExtension... filters){
+		return FileSelector.showMultiFileOpenDialogAsync(consumer, filters);
+	}
+	
 	/**
 	 * Opens a folder open dialog.
 	 * @return The folder that was selected,
@@ -296,6 +342,40 @@ public final class Dialog{
 		return FileSelector.showFileSaveDialog(extension, name);
 	}
 	
+	/**
+	 * Opens a file open dialog without blocking the calling thread.
+	 * @param filters The file extension filters to use. If none
+	 *        are provided then any extension is allowed.
+	 * @return A future that completes with the file that was selected
+	 *         or with <code>null</code> if the operation was cancelled.
+	 * @see FileSelector#showFileOpenDialogAsync(FileExtension...)
+	 */
+	public static final CompletableFuture<Path> showFileOpenDialogAsync(FileExtension... filters){
+		return FileSelector.showFileOpenDialogAsync(filters);
+	}
+	
+	/**
+	 * Opens a folder open dialog without blocking the calling thread.
+	 * @return A future that completes with the folder that was selected
+	 *         or with <code>null</code> if the operation was cancelled.
+	 * @see FileSelector#showFolderOpenDialogAsync()
+	 */
+	public static final CompletableFuture<Path> showFolderOpenDialogAsync(){
+		return FileSelector.showFolderOpenDialogAsync();
+	}
+	
+	/**
+	 * Opens a file save dialog without blocking the calling thread.
+	 * @param extension The file extension to enforce.
+	 * @param name The initial name shown to save the file as.
+	 * @return A future that completes with the file that was selected
+	 *         or with <code>null</code> if the operation was cancelled.
+	 * @see FileSelector#showFileSaveDialogAsync(FileExtension, String)
+	 */
+	public static final CompletableFuture<Path> showFileSaveDialogAsync(FileExtension extension, String name){
+		return FileSelector.showFileSaveDialogAsync(extension, name);
+	}
+	
 	/**
 	 * Gets the parent frame for the dialog windows.
 	 * @return The parent frame for the dialog windows.
@@ -0,0 +1,166 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Queue that shows asynchronously requested dialogs one at a time in
+ * the order they were requested. Native dialogs are shown on a single
+ * dedicated platform thread, as required for the COM apartment they
+ * use, while Swing dialogs are shown on the event dispatch thread.
+ * Console prompts also use the dedicated thread so that the AWT
+ * event queue is never started.
+ * Requests that are cancelled while queued are never shown.
+ * @author Roan
+ */
+final class DialogQueue{
+	/**
+	 * Thread used to show native dialogs and console prompts.
+	 */
+	private static final ExecutorService nativeThread = Executors.newSingleThreadExecutor(task->{
+		Thread thread = new Thread(task, "Util Dialog");
+		thread.setDaemon(true);
+		return thread;
+	});
+	/**
+	 * Requests waiting to be shown, also used as the lock for the queue state.
+	 */
+	private static final Queue<Request<?>> queue = new ArrayDeque<>();
+	/**
+	 * The request currently being shown, <code>null</code> if none.
+	 */
+	private static Request<?> active = null;
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private DialogQueue(){
+	}
+
+	/**
+	 * Queues a new dialog.
+	 * @param <T> The result type of the dialog.
+	 * @param nativeBackend Future completing with true if the dialog
+	 *        is native and with false if it is a Swing dialog.
+	 * @param dialog Shows the dialog and returns its result.
+	 * @param cancel Closes the dialog if it is currently
+	 *        shown, called when the request is cancelled.
+	 * @return A future that completes with the result of the dialog.
+	 */
+	static final <T> CompletableFuture<T> submit(CompletableFuture<Boolean> nativeBackend, Supplier<T> dialog, Runnable cancel){
+		Request<T> request = new Request<>(nativeBackend, dialog, cancel);
+		synchronized(queue){
+			queue.add(request);
+			if(active == null){
+				next();
+			}
+		}
+		return request.future;
+	}
+
+	/**
+	 * Starts the next request that was not cancelled.
+	 * Should only be called while holding the queue lock.
+	 */
+	private static final void next(){
+		while((active = queue.poll()) != null){
+			if(!active.future.isDone()){
+				active.start();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * A single dialog request.
+	 * @author Roan
+	 * @param <T> The result type of the dialog.
+	 */
+	private static final class Request<T>{
+		/**
+		 * The future for the result of the dialog.
+		 */
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		/**
+		 * Future completing with true if the dialog is native.
+		 */
+		private final CompletableFuture<Boolean> nativeBackend;
+		/**
+		 * Shows the dialog and returns its result.
+		 */
+		private final Supplier<T> dialog;
+		/**
+		 * True once the dialog is being shown.
+		 */
+		private volatile boolean shown = false;
+
+		/**
+		 * Constructs a new request.
+		 * @param nativeBackend Future completing with true if the dialog is native.
+		 * @param dialog Shows the dialog and returns its result.
+		 * @param cancel Closes the dialog if it is currently shown.
+		 */
+		private Request(CompletableFuture<Boolean> nativeBackend, Supplier<T> dialog, Runnable cancel){
+			this.nativeBackend = nativeBackend;
+			this.dialog = dialog;
+			future.whenComplete((result, error)->{
+				if(shown && future.isCancelled()){
+					cancel.run();
+				}
+			});
+		}
+
+		/**
+		 * Shows the dialog on the thread for its backend.
+		 */
+		private void start(){
+			nativeBackend.whenComplete((loaded, error)->{
+				Executor executor = Boolean.TRUE.equals(loaded) || ConsoleBackend.isEnabled() ? nativeThread : SwingUtilities::invokeLater;
+				executor.execute(this::run);
+			});
+		}
+
+		/**
+		 * Shows the dialog and completes the future with its result.
+		 */
+		private void run(){
+			try{
+				shown = true;
+				if(!future.isDone()){
+					future.complete(dialog.get());
+				}
+			}catch(Throwable e){
+				future.completeExceptionally(e);
+			}finally{
+				synchronized(queue){
+					next();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Shared watch service that reports changes to directories. A single
+ * watch key is used per directory regardless of how many registrations
+ * there are for it, and the key is cancelled once the last registration
+ * for the directory is cancelled. Listeners are called on the single
+ * watcher thread and should therefore return quickly. Listeners that
+ * invalidate caches can be registered to be notified before all other
+ * listeners, so other listeners never observe stale cached data.
+ * @author Roan
+ */
+final class DirectoryWatcher{
+	/**
+	 * The watched directories by path, also used as the lock for all watcher state.
+	 */
+	private static final Map<Path, Directory> directories = new HashMap<>();
+	/**
+	 * The watch service, <code>null</code> if not started yet or not available.
+	 */
+	private static WatchService service = null;
+	/**
+	 * True if starting the watch service was attempted.
+	 */
+	private static boolean started = false;
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private DirectoryWatcher(){
+	}
+
+	/**
+	 * Starts watching the given directory for created,
+	 * deleted and modified entries.
+	 * @param dir The absolute directory to watch.
+	 * @param listener The listener to pass the directory
+	 *        to when a change in it is detected.
+	 * @return The registration for the listener or <code>null</code>
+	 *         if the directory cannot be watched.
+	 */
+	static final Registration watch(Path dir, Consumer<Path> listener){
+		return watch(dir, listener, false);
+	}
+
+	/**
+	 * Starts watching the given directory for created,
+	 * deleted and modified entries.
+	 * @param dir The absolute directory to watch.
+	 * @param listener The listener to pass the directory
+	 *        to when a change in it is detected.
+	 * @param first True to notify the listener before any
+	 *        listeners registered without this flag.
+	 * @return The registration for the listener or <code>null</code>
+	 *         if the directory cannot be watched.
+	 */
+	static final Registration watch(Path dir, Consumer<Path> listener, boolean first){
+		return watchEvents(dir, (changed, events)->listener.accept(changed), first);
+	}
+
+	/**
+	 * Starts watching the given directory for created, deleted and modified
+	 * entries, passing the individual events to the listener. The context of
+	 * each event is the name of the entry relative to the directory. When
+	 * events were lost an {@link StandardWatchEventKinds#OVERFLOW} event is passed.
+	 * @param dir The absolute directory to watch.
+	 * @param listener The listener to pass the directory and
+	 *        the events to when a change in it is detected.
+	 * @param first True to notify the listener before any
+	 *        listeners registered without this flag.
+	 * @return The registration for the listener or <code>null</code>
+	 *         if the directory cannot be watched.
+	 */
+	static final Registration watchEvents(Path dir, BiConsumer<Path, List<WatchEvent<?>>> listener, boolean first){
+		synchronized(directories){
+			if(!started){
+				started = true;
+				try{
+					service = FileSystems.getDefault().newWatchService();
+					Thread thread = new Thread(DirectoryWatcher::processEvents, "Util Directory Watcher");
+					thread.setDaemon(true);
+					thread.start();
+				}catch(IOException | UnsupportedOperationException e){
+					service = null;
+				}
+			}
+
+			if(service == null || dir.getFileSystem() != FileSystems.getDefault()){
+				return null;
+			}
+
+			Directory directory = directories.get(dir);
+			if(directory == null || !directory.key.isValid()){
+				try{
+					directory = new Directory(dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY));
+				}catch(IOException | UnsupportedOperationException | ClosedWatchServiceException | SecurityException e){
+					return null;
+				}
+				directories.put(dir, directory);
+			}
+
+			Registration registration = new Registration(directory, listener);
+			if(first){
+				directory.registrations.add(0, registration);
+			}else{
+				directory.registrations.add(registration);
+			}
+			return registration;
+		}
+	}
+
+	/**
+	 * Passes changes reported by the watch service to the listeners.
+	 */
+	private static final void processEvents(){
+		try{
+			while(true){
+				WatchKey key = service.take();
+				List<WatchEvent<?>> events = Collections.unmodifiableList(key.pollEvents());
+				Path dir = (Path)key.watchable();
+
+				List<Registration> listeners;
+				synchronized(directories){
+					Directory directory = directories.get(dir);
+					listeners = directory == null || directory.key != key ? new ArrayList<>() : new ArrayList<>(directory.registrations);
+				}
+
+				for(Registration registration : listeners){
+					if(registration.active){
+						try{
+							registration.listener.accept(dir, events);
+						}catch(RuntimeException e){
+							//Listener failures should not stop watching
+						}
+					}
+				}
+
+				if(!key.reset()){
+					synchronized(directories){
+						Directory directory = directories.get(dir);
+						if(directory != null && directory.key == key){
+							directories.remove(dir);
+							for(Registration registration : directory.registrations){
+								registration.active = false;
+							}
+						}
+					}
+				}
+			}
+		}catch(InterruptedException | ClosedWatchServiceException e){
+			//Watching stopped
+		}
+	}
+
+	/**
+	 * Registration of a listener for a single directory.
+	 * @author Roan
+	 */
+	static final class Registration{
+		/**
+		 * The watched directory.
+		 */
+		private final Directory directory;
+		/**
+		 * The listener to notify of changes.
+		 */
+		private final BiConsumer<Path, List<WatchEvent<?>>> listener;
+		/**
+		 * False once this registration was cancelled or the directory
+		 * can no longer be watched, for example because it was deleted.
+		 */
+		private volatile boolean active = true;
+
+		/**
+		 * Constructs a new registration.
+		 * @param directory The watched directory.
+		 * @param listener The listener to notify of changes.
+		 */
+		private Registration(Directory directory, BiConsumer<Path, List<WatchEvent<?>>> listener){
+			this.directory = directory;
+			this.listener = listener;
+		}
+
+		/**
+		 * Checks if changes are still reported to this registration.
+		 * @return True if this registration is still active.
+		 */
+		boolean isActive(){
+			return active && directory.key.isValid();
+		}
+
+		/**
+		 * Cancels this registration, if this was the last registration
+		 * for the directory the directory is no longer watched.
+		 */
+		void cancel(){
+			synchronized(directories){
+				active = false;
+				directory.registrations.remove(this);
+				if(directory.registrations.isEmpty()){
+					directory.key.cancel();
+					directories.remove(directory.key.watchable(), directory);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A single watched directory.
+	 * @author Roan
+	 */
+	private static final class Directory{
+		/**
+		 * The watch key for the directory.
+		 */
+		private final WatchKey key;
+		/**
+		 * All active registrations for the directory.
+		 */
+		private final List<Registration> registrations = new ArrayList<>();
+
+		/**
+		 * Constructs a new watched directory.
+		 * @param key The watch key for the directory.
+		 */
+		private Directory(WatchKey key){
+			this.key = key;
+		}
+	}
+}
@@ -201,7 +201,9 @@ public final class ExclamationMarkPath{
 				return;
 			}
 			
+			FlightEvent event = FlightEvent.begin(FlightEvent.JAR_COPY).set("source", exe.getAbsolutePath()).set("target", tmp.getAbsolutePath());
 			Files.copy(exe.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			event.set("bytes", tmp.length()).commit();
 		}catch(IOException e){
 			e.printStackTrace();
 			return;
@@ -228,7 +230,10 @@ public final class ExclamationMarkPath{
 		
 		//Start and hope for the best
 		try{
-			System.exit(builder.start().waitFor());
+			FlightEvent event = FlightEvent.begin(FlightEvent.RELAUNCH).set("target", tmp.getAbsolutePath());
+			int code = builder.start().waitFor();
+			event.set("exitCode", code).commit();
+			System.exit(code);
 		}catch(IOException | InterruptedException e){
 			e.printStackTrace();
 		}
@@ -242,7 +247,7 @@ public final class ExclamationMarkPath{
 	 * @return True if an exclamation mark was
 	 *         found on the path for the given file.
 	 */
-	private static final boolean verifyPath(File file){
+	static final boolean verifyPath(File file){
 		if(file == null){
 			return false;
 		}else if(file.isFile()){
@@ -0,0 +1,384 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import javax.swing.filechooser.FileFilter;
+
+/**
+ * File filter that matches file names against a set of extensions
+ * ignoring case, similar to {@link javax.swing.filechooser.FileNameExtensionFilter}.
+ * Extensions may contain multiple parts such as <code>tar.gz</code> and
+ * may be glob patterns using <code>*</code>, <code>?</code> and character
+ * classes such as <code>[0-9]</code>, for example <code>log.*</code>.
+ * <p>
+ * All plain extensions are compiled into a single trie of reversed
+ * extensions, so a name is matched against all of them in a single pass
+ * over its last characters without allocating any objects. Glob patterns
+ * are matched separately, also without allocating any objects.
+ * <p>
+ * As a Swing file filter all directories are accepted so they can be
+ * navigated, as a path predicate only the name of the path is matched.
+ * A name matches an extension when it ends with a period followed by
+ * the extension and the period is not the first character of the name.
+ * @author Roan
+ * @see FileSelector.FileExtension#getFilter()
+ */
+public final class ExtensionFilter extends FileFilter implements Predicate<Path>{
+	/**
+	 * Case folded ASCII characters.
+	 */
+	private static final char[] ASCII = new char[128];
+	/**
+	 * The description of this filter.
+	 */
+	private final String description;
+	/**
+	 * The extensions matched by this filter.
+	 */
+	private final String[] extensions;
+	/**
+	 * The sorted edge labels of each trie node.
+	 */
+	private final char[][] labels;
+	/**
+	 * The child node for each edge label of each trie node.
+	 */
+	private final int[][] children;
+	/**
+	 * True for each trie node that completes an extension.
+	 */
+	private final boolean[] terminal;
+	/**
+	 * The case folded glob patterns matched by this filter.
+	 */
+	private final char[][] globs;
+
+	static{
+		for(char c = 0; c < ASCII.length; c++){
+			ASCII[c] = (c >= 'A' && c <= 'Z') ? (char)(c + ('a' - 'A')) : c;
+		}
+	}
+
+	/**
+	 * Constructs a new extension filter.
+	 * @param description The description of the filter.
+	 * @param extensions The extensions to match without a leading period,
+	 *        these may contain multiple parts and glob patterns.
+	 * @throws NullPointerException When any of the arguments is <code>null</code>.
+	 * @throws IllegalArgumentException When no extensions are
+	 *         given or when one of the extensions is empty.
+	 */
+	public ExtensionFilter(String description, String... extensions) throws NullPointerException, IllegalArgumentException{
+		this.description = Objects.requireNonNull(description, "Description may not be null.");
+		if(Objects.requireNonNull(extensions, "Extensions array cannot be null.").length == 0){
+			throw new IllegalArgumentException("Extensions array cannot be empty.");
+		}
+		this.extensions = extensions.clone();
+
+		Node root = new Node();
+		List<char[]> patterns = new ArrayList<>();
+		for(String ext : this.extensions){
+			if(Objects.requireNonNull(ext, "Extensions cannot be null.").isEmpty()){
+				throw new IllegalArgumentException("Extensions cannot be empty.");
+			}
+
+			char[] folded = new char[ext.length()];
+			for(int i = 0; i < folded.length; i++){
+				folded[i] = fold(ext.charAt(i));
+			}
+
+			if(isGlob(ext)){
+				patterns.add(folded);
+			}else{
+				Node node = root;
+				for(int i = folded.length - 1; i >= 0; i--){
+					node = node.child(folded[i]);
+				}
+				node.terminal = true;
+			}
+		}
+		globs = patterns.toArray(new char[patterns.size()][]);
+
+		List<Node> nodes = new ArrayList<>();
+		root.index(nodes);
+		labels = new char[nodes.size()][];
+		children = new int[nodes.size()][];
+		terminal = new boolean[nodes.size()];
+		for(Node node : nodes){
+			labels[node.index] = new char[node.labels.size()];
+			children[node.index] = new int[node.labels.size()];
+			for(int i = 0; i < labels[node.index].length; i++){
+				labels[node.index][i] = node.labels.get(i);
+				children[node.index][i] = node.children.get(i).index;
+			}
+			terminal[node.index] = node.terminal;
+		}
+	}
+
+	/**
+	 * Checks if the given file name matches any of the extensions.
+	 * @param name The file name to check, without any parent directories.
+	 * @return True if the name matches any of the extensions.
+	 */
+	public boolean matches(CharSequence name){
+		int node = 0;
+		for(int i = name.length() - 1; i > 0 && node != -1; i--){
+			char c = fold(name.charAt(i));
+			if(c == '.' && terminal[node]){
+				return true;
+			}
+
+			int edge = Arrays.binarySearch(labels[node], c);
+			node = edge < 0 ? -1 : children[node][edge];
+		}
+
+		if(globs.length != 0){
+			for(int dot = name.length() - 2; dot > 0; dot--){
+				if(name.charAt(dot) == '.'){
+					for(char[] glob : globs){
+						if(glob(glob, name, dot + 1)){
+							return true;
+						}
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks if the name of the given path matches any of the extensions.
+	 * @param path The path to check.
+	 * @return True if the name of the path matches any of the extensions.
+	 */
+	@Override
+	public boolean test(Path path){
+		Path name = path.getFileName();
+		return name != null && matches(name.toString());
+	}
+
+	/**
+	 * Checks if the given file is a directory or
+	 * has a name that matches any of the extensions.
+	 * @param file The file to check.
+	 * @return True if the file is accepted.
+	 */
+	@Override
+	public boolean accept(File file){
+		return file != null && (file.isDirectory() || matches(file.getName()));
+	}
+
+	@Override
+	public String getDescription(){
+		return description;
+	}
+
+	/**
+	 * Gets the extensions matched by this filter.
+	 * @return The extensions matched by this filter.
+	 */
+	public String[] getExtensions(){
+		return extensions.clone();
+	}
+
+	/**
+	 * Gets the first extension of this filter that is not a glob pattern.
+	 * @return The first plain extension in lower case or
+	 *         <code>null</code> if all extensions are glob patterns.
+	 */
+	String getDefaultExtension(){
+		for(String ext : extensions){
+			if(!isGlob(ext)){
+				StringBuilder folded = new StringBuilder(ext.length());
+				for(int i = 0; i < ext.length(); i++){
+					folded.append(fold(ext.charAt(i)));
+				}
+				return folded.toString();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String toString(){
+		return description + " " + Arrays.toString(extensions);
+	}
+
+	/**
+	 * Matches the given case folded glob pattern
+	 * against the remainder of the given name.
+	 * @param glob The case folded glob pattern.
+	 * @param name The name to match.
+	 * @param from The index of the first character of the name to match.
+	 * @return True if the remainder of the name matches the pattern.
+	 */
+	private static final boolean glob(char[] glob, CharSequence name, int from){
+		int p = 0;
+		int n = from;
+		int starP = -1;
+		int starN = -1;
+		while(n < name.length()){
+			char c = fold(name.charAt(n));
+			if(p < glob.length && glob[p] == '*'){
+				starP = ++p;
+				starN = n;
+				continue;
+			}
+
+			int next = p < glob.length ? step(glob, p, c) : -1;
+			if(next != -1){
+				p = next;
+				n++;
+			}else if(starP != -1){
+				p = starP;
+				n = ++starN;
+			}else{
+				return false;
+			}
+		}
+
+		while(p < glob.length && glob[p] == '*'){
+			p++;
+		}
+		return p == glob.length;
+	}
+
+	/**
+	 * Matches a single non star element of a glob pattern.
+	 * @param glob The case folded glob pattern.
+	 * @param p The index of the element in the pattern.
+	 * @param c The case folded character to match.
+	 * @return The index of the next element in the pattern
+	 *         or -1 if the character does not match.
+	 */
+	private static final int step(char[] glob, int p, char c){
+		if(glob[p] == '?'){
+			return p + 1;
+		}else if(glob[p] == '['){
+			int end = p + 1;
+			boolean negate = end < glob.length && glob[end] == '!';
+			if(negate){
+				end++;
+			}
+
+			boolean match = false;
+			int first = end;
+			while(end < glob.length && (glob[end] != ']' || end == first)){
+				if(end + 2 < glob.length && glob[end + 1] == '-' && glob[end + 2] != ']'){
+					match |= glob[end] <= c && c <= glob[end + 2];
+					end += 3;
+				}else{
+					match |= glob[end] == c;
+					end++;
+				}
+			}
+
+			if(end == glob.length){
+				//Unterminated class, match the bracket literally
+				return c == '[' ? p + 1 : -1;
+			}
+			return match != negate ? end + 1 : -1;
+		}else{
+			return glob[p] == c ? p + 1 : -1;
+		}
+	}
+
+	/**
+	 * Checks if the given extension is a glob pattern.
+	 * @param ext The extension to check.
+	 * @return True if the extension contains glob characters.
+	 */
+	private static final boolean isGlob(String ext){
+		return ext.indexOf('*') != -1 || ext.indexOf('?') != -1 || ext.indexOf('[') != -1;
+	}
+
+	/**
+	 * Folds the case of the given character.
+	 * @param c The character to fold.
+	 * @return The case folded character.
+	 */
+	private static final char fold(char c){
+		return c < ASCII.length ? ASCII[c] : Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	/**
+	 * Trie node used while compiling the filter.
+	 * @author Roan
+	 */
+	private static final class Node{
+		/**
+		 * The sorted edge labels of this node.
+		 */
+		private final List<Character> labels = new ArrayList<>();
+		/**
+		 * The child node for each edge label.
+		 */
+		private final List<Node> children = new ArrayList<>();
+		/**
+		 * True if this node completes an extension.
+		 */
+		private boolean terminal = false;
+		/**
+		 * The index of this node in the compiled trie.
+		 */
+		private int index;
+
+		/**
+		 * Gets the child for the given label, creating it if required.
+		 * @param label The edge label.
+		 * @return The child node for the label.
+		 */
+		private Node child(char label){
+			int idx = 0;
+			while(idx < labels.size() && labels.get(idx) < label){
+				idx++;
+			}
+
+			if(idx < labels.size() && labels.get(idx) == label){
+				return children.get(idx);
+			}
+
+			Node child = new Node();
+			labels.add(idx, label);
+			children.add(idx, child);
+			return child;
+		}
+
+		/**
+		 * Assigns indices to this node and all its descendants.
+		 * @param nodes The list to add all nodes to in index order.
+		 */
+		private void index(List<Node> nodes){
+			index = nodes.size();
+			nodes.add(this);
+			for(Node child : children){
+				child.index(nodes);
+			}
+		}
+	}
+}
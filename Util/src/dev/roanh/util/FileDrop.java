@@ -0,0 +1,286 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import dev.roanh.util.FileTextField.FileDropListener;
+
+/**
+ * Processes a set of dropped files in the background, optionally expanding
+ * dropped directories to all the files they contain. Directories are walked
+ * by a fixed number of tasks on the shared background executor without
+ * following symbolic links. Files are passed to the listener in batches as
+ * soon as they are found and no new batch is passed until the previous one
+ * was handled, so the complete list of files is never held in memory.
+ * @author Roan
+ */
+final class FileDrop{
+	/**
+	 * The maximum number of files passed to the listener at once.
+	 */
+	private static final int BATCH_SIZE = 256;
+	/**
+	 * The maximum number of tasks walking directories at the same time.
+	 */
+	private static final int WALKERS = 2;
+	/**
+	 * The dropped files.
+	 */
+	private final List<File> files;
+	/**
+	 * The listener to pass batches of files to.
+	 */
+	private final FileDropListener listener;
+	/**
+	 * True if dropped directories are expanded to the files they contain.
+	 */
+	private final boolean expand;
+	/**
+	 * True if batches are passed to the listener on a background
+	 * thread instead of on the event dispatch thread.
+	 */
+	private final boolean background;
+	/**
+	 * The number of tasks that still have to finish, this includes
+	 * the initial task and all directories that were not walked yet.
+	 */
+	private final AtomicInteger pending = new AtomicInteger(1);
+	/**
+	 * The directories that still have to be walked.
+	 */
+	private final Deque<Path> directories = new ArrayDeque<>();
+	/**
+	 * The number of tasks currently walking directories,
+	 * guarded by the lock on {@link #directories}.
+	 */
+	private int walkers = 0;
+	/**
+	 * The files found that were not passed to the listener yet.
+	 */
+	private List<Path> batch = new ArrayList<>();
+	/**
+	 * Completes once the previous batch was passed to the listener
+	 * on the event dispatch thread, <code>null</code> if there was none.
+	 */
+	private CompletableFuture<Void> delivery = null;
+	/**
+	 * True once processing was cancelled.
+	 */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Constructs a new file drop.
+	 * @param files The dropped files.
+	 * @param listener The listener to pass batches of files to.
+	 * @param expand True to expand dropped directories
+	 *        to the files they contain.
+	 * @param background True to pass batches to the listener on a
+	 *        background thread instead of the event dispatch thread.
+	 */
+	FileDrop(List<File> files, FileDropListener listener, boolean expand, boolean background){
+		this.files = files;
+		this.listener = listener;
+		this.expand = expand;
+		this.background = background;
+	}
+
+	/**
+	 * Starts processing the dropped files in the background.
+	 * @return This file drop.
+	 */
+	FileDrop start(){
+		Scheduler.getExecutor().execute(()->{
+			try{
+				for(File file : files){
+					if(cancelled){
+						break;
+					}
+
+					try{
+						Path path = file.toPath();
+						if(expand && Files.isDirectory(path)){
+							queue(path);
+						}else{
+							add(path);
+						}
+					}catch(InvalidPathException ignore){
+						//Not a file system path
+					}
+				}
+			}finally{
+				done();
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Stops processing the dropped files, no more
+	 * batches are passed to the listener.
+	 */
+	void cancel(){
+		cancelled = true;
+	}
+
+	/**
+	 * Queues the given directory to be walked, starting a new
+	 * walker task if fewer than {@value #WALKERS} are running.
+	 * @param dir The directory to walk.
+	 */
+	private void queue(Path dir){
+		pending.incrementAndGet();
+		synchronized(directories){
+			directories.push(dir);
+			if(walkers >= WALKERS){
+				return;
+			}
+
+			walkers++;
+		}
+
+		Scheduler.getExecutor().execute(this::walk);
+	}
+
+	/**
+	 * Walks queued directories until there are none left.
+	 */
+	private void walk(){
+		while(true){
+			Path dir;
+			synchronized(directories){
+				dir = directories.poll();
+				if(dir == null){
+					walkers--;
+					return;
+				}
+			}
+
+			try{
+				walk(dir);
+			}finally{
+				done();
+			}
+		}
+	}
+
+	/**
+	 * Adds all files in the given directory and queues
+	 * the directories it contains to be walked.
+	 * @param dir The directory to walk.
+	 */
+	private void walk(Path dir){
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(dir)){
+			for(Path path : stream){
+				if(cancelled){
+					break;
+				}
+
+				if(Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)){
+					queue(path);
+				}else{
+					add(path);
+				}
+			}
+		}catch(IOException | DirectoryIteratorException | SecurityException ignore){
+			//Skip directories that cannot be read
+		}
+	}
+
+	/**
+	 * Adds a found file to the current batch, passing the
+	 * batch to the listener once it is full.
+	 * @param path The found file.
+	 */
+	private synchronized void add(Path path){
+		batch.add(path);
+		if(batch.size() >= BATCH_SIZE){
+			flush(false);
+		}
+	}
+
+	/**
+	 * Marks a task as finished, passing the final
+	 * batch to the listener if this was the last task.
+	 */
+	private void done(){
+		if(pending.decrementAndGet() == 0){
+			synchronized(this){
+				flush(true);
+			}
+		}
+	}
+
+	/**
+	 * Passes the current batch to the listener. Should only be
+	 * called while holding the lock on this file drop, so that
+	 * batches are passed to the listener in order. Blocks until
+	 * the previous batch was handled by the listener, batches
+	 * passed on a background thread are handled by the calling
+	 * thread directly.
+	 * @param last True if this is the final batch.
+	 */
+	private void flush(boolean last){
+		if(cancelled){
+			return;
+		}
+
+		List<Path> files = Collections.unmodifiableList(batch);
+		batch = new ArrayList<>();
+		if(background){
+			try{
+				listener.onFilesDropped(files, last);
+			}catch(RuntimeException ignore){
+				//The next batches are still passed to the listener
+			}
+		}else{
+			if(delivery != null){
+				delivery.join();
+			}
+
+			CompletableFuture<Void> handled = new CompletableFuture<>();
+			delivery = handled;
+			SwingUtilities.invokeLater(()->{
+				try{
+					if(!cancelled){
+						listener.onFilesDropped(files, last);
+					}
+				}finally{
+					handled.complete(null);
+				}
+			});
+		}
+	}
+}
@@ -19,39 +19,96 @@
 package dev.roanh.util;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import javax.swing.JFileChooser;
-import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.LookAndFeel;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+
+import dev.roanh.util.PathValidator.Status;
+import dev.roanh.util.PathValidator.Type;
 
 /**
  * File chooser implementation that when
  * possible shows the new style Windows
  * file selector and otherwise falls back
- * to the Swing file chooser.
+ * to the Swing file chooser. When the JVM
+ * is headless or the <code>dev.roanh.util.console</code>
+ * system property is set to <code>true</code> paths
+ * are prompted for on the console instead.
  * @author Roan
  * @see JFileChooser
  */
 public final class FileSelector{
 	/**
-	 * True if the native library
-	 * is loaded.
+	 * The maximum number of file extensions that can be registered
+	 * with the native library, further extensions are only available
+	 * in the Swing file choosers.
+	 */
+	private static final int NATIVE_EXTENSIONS = 64;
+	/**
+	 * The number of selected files validated by a single task.
+	 */
+	private static final int VALIDATION_CHUNK = 64;
+	/**
+	 * The maximum time in milliseconds Swing dialogs wait
+	 * for a selected path to be checked.
+	 */
+	private static final long VALIDATION_DEADLINE = 2000;
+	/**
+	 * False once the loaded native library turned out not to support
+	 * multiple selection, bundled libraries built before this entry
+	 * point was added do not export it.
+	 */
+	private static volatile boolean nativeMultiSelect = true;
+	/**
+	 * All registered file extensions by their description and extensions.
+	 */
+	private static final Map<List<String>, FileExtension> registeredExtensions = new ConcurrentHashMap<>();
+	/**
+	 * Completes with true once the native library is
+	 * loaded or with false if it is not available,
+	 * <code>null</code> if loading has not started yet.
+	 */
+	private static final AtomicReference<CompletableFuture<Boolean>> backend = new AtomicReference<>();
+	/**
+	 * File chooser used for opening files if no
+	 * native library is loaded.
+	 */
+	private static final Chooser fileChooser = new Chooser(JFileChooser.FILES_ONLY, false);
+	/**
+	 * File chooser used for opening multiple files if no
+	 * native library is loaded.
+	 */
+	private static final Chooser multiFileChooser = new Chooser(JFileChooser.FILES_ONLY, true);
+	/**
+	 * File chooser used for opening folders if no
+	 * native library is loaded.
 	 */
-	private static boolean initialised;
+	private static final Chooser folderChooser = new Chooser(JFileChooser.DIRECTORIES_ONLY, false);
 	/**
-	 * File chooser instance if no
+	 * File chooser used for saving files if no
 	 * native library is loaded.
 	 */
-	private static JFileChooser chooser = null;
+	private static final Chooser saveChooser = new Chooser(JFileChooser.FILES_ONLY, false);
 	
 	/**
 	 * Prevent instantiation.
@@ -59,6 +116,162 @@ public final class FileSelector{
 	private FileSelector(){
 	}
 	
+	/**
+	 * Starts loading the native file dialog backend in the background
+	 * if it was not loaded yet. Calling this early during program startup
+	 * ensures that showing the first dialog does not have to wait for the
+	 * native library to be extracted and linked. Dialogs shown and file
+	 * extensions registered while loading is still in progress wait for
+	 * loading to finish. If this subroutine is never called, loading is
+	 * started by the first dialog or file extension registration instead.
+	 * <p>
+	 * If the native library is not available, the default directory and
+	 * its icons are loaded in the background, after which the Swing file
+	 * choosers used for opening files, opening folders and saving files
+	 * are constructed on the event dispatch thread and the returned future
+	 * completes. Nothing is loaded when dialogs are shown on the console.
+	 * @return A future that completes with true if the native backend
+	 *         was loaded or with false if the Swing fallback or the
+	 *         console is used.
+	 * @see #isReady()
+	 */
+	public static final CompletableFuture<Boolean> preload(){
+		if(ConsoleBackend.isEnabled()){
+			return CompletableFuture.completedFuture(false);
+		}
+		
+		return getBackend().thenComposeAsync(loaded->{
+			if(loaded){
+				return CompletableFuture.completedFuture(true);
+			}
+			
+			CachedFileSystemView view = CachedFileSystemView.getInstance();
+			view.preload(view.getDefaultDirectory());
+			
+			CompletableFuture<Boolean> choosers = new CompletableFuture<>();
+			SwingUtilities.invokeLater(()->{
+				try{
+					fileChooser.get();
+					multiFileChooser.get();
+					folderChooser.get();
+					saveChooser.get();
+					choosers.complete(loaded);
+				}catch(Throwable e){
+					choosers.completeExceptionally(e);
+				}
+			});
+			return choosers;
+		}, Scheduler.getExecutor());
+	}
+	
+	/**
+	 * Checks if loading of the file dialog backend has finished,
+	 * meaning dialogs can be shown without any delay.
+	 * @return True if loading the backend has finished.
+	 * @see #preload()
+	 */
+	public static final boolean isReady(){
+		CompletableFuture<Boolean> future = backend.get();
+		return future != null && future.isDone();
+	}
+	
+	/**
+	 * Checks if the native backend is used, waiting
+	 * for it to load if loading is still in progress.
+	 * @return True if the native backend is loaded.
+	 */
+	private static final boolean isNative(){
+		return getBackend().join();
+	}
+	
+	/**
+	 * Checks if the native backend is used and all the given file
+	 * extensions are registered with it, waiting for the backend
+	 * to load if loading is still in progress.
+	 * @param extensions The file extensions to check.
+	 * @return True if a native dialog can be shown for the extensions.
+	 */
+	private static final boolean isNative(FileExtension... extensions){
+		if(!isNative()){
+			return false;
+		}
+		
+		for(FileExtension extension : extensions){
+			if(Objects.requireNonNull(extension, "File extensions cannot be null").nativeID == 0L){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Gets a future that completes with true if a native dialog
+	 * can be shown for the given file extensions once the backend
+	 * has loaded, starting loading if this was not done yet. When
+	 * dialogs are shown on the console the backend is not loaded.
+	 * @param extensions The file extensions for the dialog.
+	 * @return The future for the backend to use for the dialog.
+	 * @see #isNative(FileExtension...)
+	 */
+	private static final CompletableFuture<Boolean> getDialogBackend(FileExtension... extensions){
+		if(ConsoleBackend.isEnabled()){
+			return CompletableFuture.completedFuture(false);
+		}
+		return getBackend().thenApply(loaded->loaded && isNative(extensions));
+	}
+	
+	/**
+	 * Combines the native IDs of the given file extensions.
+	 * @param extensions The file extensions to combine.
+	 * @return The bitwise combination of the native IDs.
+	 */
+	private static final long getNativeFilters(FileExtension... extensions){
+		long filters = 0L;
+		for(FileExtension extension : extensions){
+			filters |= extension.nativeID;
+		}
+		return filters;
+	}
+	
+	/**
+	 * Gets the future for loading the backend,
+	 * starting loading if this was not done yet.
+	 * @return The future for loading the backend.
+	 */
+	private static final CompletableFuture<Boolean> getBackend(){
+		CompletableFuture<Boolean> future = backend.get();
+		if(future == null){
+			CompletableFuture<Boolean> created = new CompletableFuture<>();
+			if(backend.compareAndSet(null, created)){
+				Scheduler.getExecutor().execute(()->{
+					try{
+						created.complete(loadBackend());
+					}catch(Throwable e){
+						created.complete(false);
+					}
+				});
+				future = created;
+			}else{
+				future = backend.get();
+			}
+		}
+		return future;
+	}
+	
+	/**
+	 * Attempts to load the native library for the current platform.
+	 * @return True if the native library was loaded.
+	 */
+	private static final boolean loadBackend(){
+		if(System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("windows")){
+			String arch = System.getProperty("os.arch");
+			if(arch.equals("amd64") || arch.equals("x86")){
+				return NativeLibrary.load("dev/roanh/util/lib/" + arch + "/Util.dll", arch);
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * Opens a file open dialog.
 	 * @param extensions The file extension filters to use. If none
@@ -72,29 +285,46 @@ public final class FileSelector{
 	 */
 	public static final Path showFileOpenDialog(FileExtension... extensions){
 		Objects.requireNonNull(extensions, "The extensions array cannot be null.");
-		if(initialised){
-			long filters = 0;
-			for(FileExtension extension : extensions){
-				Objects.requireNonNull(extension, "File extensions cannot be null");
-				filters |= extension.nativeID;
-			}
-			return toPath(showNativeFileOpen(filters, extensions.length));
+		FlightEvent event = beginDialog("open file");
+		Path path = null;
+		try{
+			path = openFile(extensions);
+			return path;
+		}finally{
+			endDialog(event, path != null, ()->isNative(extensions));
+		}
+	}
+	
+	/**
+	 * Opens a file open dialog.
+	 * @param extensions The file extension filters to use.
+	 * @return The file that was selected or <code>null</code>.
+	 * @see #showFileOpenDialog(FileExtension...)
+	 */
+	private static final Path openFile(FileExtension... extensions){
+		Objects.requireNonNull(extensions, "The extensions array cannot be null.");
+		if(ConsoleBackend.isEnabled()){
+			return ConsoleBackend.openFile(path->accepts(path, extensions));
+		}else if(isNative(extensions)){
+			long filters = getNativeFilters(extensions);
+			return toPath(showNativeFileOpen(filters, Long.bitCount(filters)));
 		}else{
-			if(chooser == null){
-				chooser = new JFileChooser();
-			}
-			
-			chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
-			chooser.resetChoosableFileFilters();
-			for(FileExtension ext : extensions){
-				chooser.addChoosableFileFilter(ext.filter);
+			JFileChooser chooser = fileChooser.get();
+			if(fileChooser.configure(Arrays.asList(extensions))){
+				chooser.resetChoosableFileFilters();
+				for(FileExtension ext : extensions){
+					chooser.addChoosableFileFilter(ext.filter);
+				}
+				chooser.setAcceptAllFileFilterUsed(extensions.length == 0);
 			}
-			chooser.setAcceptAllFileFilterUsed(extensions.length == 0);
 			
 			while(chooser.showOpenDialog(Dialog.getParentFrame()) == JFileChooser.APPROVE_OPTION){
 				Path selected = chooser.getSelectedFile().toPath();
-				if(Files.exists(selected)){
+				Status status = PathValidator.check(selected, VALIDATION_DEADLINE);
+				if(status.exists()){
 					return selected;
+				}else if(status.type == Type.UNREACHABLE){
+					Dialog.showMessageDialog("The location of the given file could not be reached.\nCheck the connection and try again.");
 				}else{
 					Dialog.showMessageDialog("The given file does not exist.\nCheck the path and try again.");
 				}
@@ -103,6 +333,165 @@ public final class FileSelector{
 		}
 	}
 	
+	/**
+	 * Opens a file open dialog that allows selecting multiple files. The
+	 * selected files are checked to exist and be readable before this
+	 * subroutine returns. Files on a file system that cannot be reached
+	 * in time are skipped, so this never waits long for a slow network
+	 * location. For large selections consider using {@link #showMultiFileOpenDialogAsync(Consumer, FileExtension...)}
+	 * instead to process files while others are still being checked.
+	 * @param extensions The file extension filters to use. If none
+	 *        are provided then any extension is allowed.
+	 * @return The files that were selected in the order they were
+	 *         selected in, these files will exist on the file system.
+	 *         If the operation was cancelled an empty list is returned.
+	 * @see #registerFileExtension(String, String...)
+	 */
+	public static final List<Path> showMultiFileOpenDialog(FileExtension... extensions){
+		List<Path> valid = new ArrayList<>();
+		for(Path file : selectFiles(extensions)){
+			Status status = PathValidator.check(file, VALIDATION_DEADLINE);
+			if(status.type == Type.FILE && status.readable){
+				valid.add(file);
+			}
+		}
+		return valid;
+	}
+	
+	/**
+	 * Opens a file open dialog that allows selecting multiple files without
+	 * blocking the calling thread. Dialogs are queued as described for
+	 * {@link #showFileOpenDialogAsync(FileExtension...)}. Once the dialog
+	 * is closed the selected files are checked to exist and be readable in
+	 * parallel in the background. Each file that passes these checks is
+	 * passed to the given consumer as soon as it was checked, so files are
+	 * not necessarily passed in the order they were selected in. Calls to
+	 * the consumer are made from background threads, but never concurrently.
+	 * Cancelling the returned future also stops any remaining checks.
+	 * @param consumer The consumer to pass valid files to as soon as they were checked.
+	 * @param extensions The file extension filters to use. If none
+	 *        are provided then any extension is allowed.
+	 * @return A future that completes with all valid files in the order
+	 *         they were selected in once all files were checked. If the
+	 *         operation was cancelled the list is empty.
+	 * @see #showMultiFileOpenDialog(FileExtension...)
+	 */
+	public static final CompletableFuture<List<Path>> showMultiFileOpenDialogAsync(Consumer<Path> consumer, FileExtension... extensions){
+		Objects.requireNonNull(consumer, "The consumer cannot be null.");
+		Objects.requireNonNull(extensions, "The extensions array cannot be null.");
+		FileExtension[] filters = extensions.clone();
+		CompletableFuture<List<Path>> selection = DialogQueue.submit(getDialogBackend(filters).thenApply(loaded->loaded && nativeMultiSelect), ()->selectFiles(filters), FileSelector::cancelSwingDialogs);
+		
+		CompletableFuture<List<Path>> result = new CompletableFuture<>();
+		result.whenComplete((files, error)->{
+			if(result.isCancelled()){
+				selection.cancel(true);
+			}
+		});
+		selection.whenComplete((files, error)->{
+			if(error != null){
+				result.completeExceptionally(error);
+			}else{
+				validate(files, consumer, result);
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * Opens a file open dialog that allows selecting multiple files.
+	 * @param extensions The file extension filters to use.
+	 * @return The files that were selected, not validated in any way.
+	 * @see #showMultiFileOpenDialog(FileExtension...)
+	 */
+	private static final List<Path> selectFiles(FileExtension... extensions){
+		Objects.requireNonNull(extensions, "The extensions array cannot be null.");
+		FlightEvent event = beginDialog("open files");
+		List<Path> files = Collections.emptyList();
+		try{
+			files = openFiles(extensions);
+			return files;
+		}finally{
+			endDialog(event, !files.isEmpty(), ()->nativeMultiSelect && isNative(extensions));
+		}
+	}
+	
+	/**
+	 * Opens a file open dialog that allows selecting multiple files. When
+	 * the loaded native library does not support multiple selection the
+	 * Swing file chooser is used instead.
+	 * @param extensions The file extension filters to use.
+	 * @return The files that were selected, not validated in any way.
+	 * @see #selectFiles(FileExtension...)
+	 */
+	private static final List<Path> openFiles(FileExtension... extensions){
+		if(ConsoleBackend.isEnabled()){
+			return ConsoleBackend.openFiles(path->accepts(path, extensions));
+		}else if(nativeMultiSelect && isNative(extensions)){
+			try{
+				long filters = getNativeFilters(extensions);
+				String[] paths = showNativeMultiFileOpen(filters, Long.bitCount(filters));
+				if(paths == null){
+					return Collections.emptyList();
+				}
+				return Arrays.stream(paths).filter(Objects::nonNull).map(Paths::get).collect(Collectors.toList());
+			}catch(UnsatisfiedLinkError e){
+				//Library built before multiple selection was supported
+				nativeMultiSelect = false;
+			}
+		}
+		
+		JFileChooser chooser = multiFileChooser.get();
+		if(multiFileChooser.configure(Arrays.asList(extensions))){
+			chooser.resetChoosableFileFilters();
+			for(FileExtension ext : extensions){
+				chooser.addChoosableFileFilter(ext.filter);
+			}
+			chooser.setAcceptAllFileFilterUsed(extensions.length == 0);
+		}
+		
+		if(chooser.showOpenDialog(Dialog.getParentFrame()) == JFileChooser.APPROVE_OPTION){
+			return Arrays.stream(chooser.getSelectedFiles()).map(File::toPath).collect(Collectors.toList());
+		}
+		return Collections.emptyList();
+	}
+	
+	/**
+	 * Checks in parallel that the given files exist and are readable.
+	 * @param files The files to check.
+	 * @param consumer The consumer to pass valid files to as soon as they were checked.
+	 * @param result The future to complete with all valid files in their
+	 *        original order, if this future is completed early the
+	 *        remaining files are not checked.
+	 */
+	private static final void validate(List<Path> files, Consumer<Path> consumer, CompletableFuture<List<Path>> result){
+		Path[] valid = new Path[files.size()];
+		CompletableFuture<?>[] tasks = new CompletableFuture<?>[(files.size() + VALIDATION_CHUNK - 1) / VALIDATION_CHUNK];
+		for(int i = 0; i < tasks.length; i++){
+			int from = i * VALIDATION_CHUNK;
+			int to = Math.min(files.size(), from + VALIDATION_CHUNK);
+			tasks[i] = CompletableFuture.runAsync(()->{
+				for(int idx = from; idx < to && !result.isDone(); idx++){
+					Path file = files.get(idx);
+					if(Files.isRegularFile(file) && Files.isReadable(file)){
+						valid[idx] = file;
+						synchronized(valid){
+							consumer.accept(file);
+						}
+					}
+				}
+			}, Scheduler.getExecutor());
+		}
+		
+		CompletableFuture.allOf(tasks).whenComplete((v, error)->{
+			if(error != null){
+				result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+			}else{
+				result.complete(Collections.unmodifiableList(Arrays.stream(valid).filter(Objects::nonNull).collect(Collectors.toList())));
+			}
+		});
+	}
+	
 	/**
 	 * Opens a folder open dialog.
 	 * @return The folder that was selected,
@@ -112,20 +501,40 @@ public final class FileSelector{
 	 *         <code>null</code> is returned.
 	 */
 	public static final Path showFolderOpenDialog(){
-		if(initialised){
+		FlightEvent event = beginDialog("open folder");
+		Path path = null;
+		try{
+			path = openFolder();
+			return path;
+		}finally{
+			endDialog(event, path != null, FileSelector::isNative);
+		}
+	}
+	
+	/**
+	 * Opens a folder open dialog.
+	 * @return The folder that was selected or <code>null</code>.
+	 * @see #showFolderOpenDialog()
+	 */
+	private static final Path openFolder(){
+		if(ConsoleBackend.isEnabled()){
+			return ConsoleBackend.openFolder();
+		}else if(isNative()){
 			return toPath(showNativeFolderOpen());
 		}else{
-			if(chooser == null){
-				chooser = new JFileChooser();
+			JFileChooser chooser = folderChooser.get();
+			if(folderChooser.configure(null)){
+				chooser.resetChoosableFileFilters();
+				chooser.setAcceptAllFileFilterUsed(false);
 			}
 			
-			chooser.resetChoosableFileFilters();
-			chooser.setAcceptAllFileFilterUsed(false);
-			chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
 			while(chooser.showOpenDialog(Dialog.getParentFrame()) == JFileChooser.APPROVE_OPTION){
 				Path selected = chooser.getSelectedFile().toPath();
-				if(Files.exists(selected)){
+				Status status = PathValidator.check(selected, VALIDATION_DEADLINE);
+				if(status.exists()){
 					return selected;
+				}else if(status.type == Type.UNREACHABLE){
+					Dialog.showMessageDialog("The location of the given folder could not be reached.\nCheck the connection and try again.");
 				}else{
 					Dialog.showMessageDialog("The given folder does not exist.\nCheck the path and try again.");
 				}
@@ -150,28 +559,49 @@ public final class FileSelector{
 	 * @see #registerFileExtension(String, String...)
 	 */
 	public static final Path showFileSaveDialog(FileExtension filter, String name){
+		FlightEvent event = beginDialog("save file");
+		Path path = null;
+		try{
+			path = saveFile(filter, name);
+			return path;
+		}finally{
+			endDialog(event, path != null, ()->filter == null ? isNative() : isNative(filter));
+		}
+	}
+	
+	/**
+	 * Opens a file save dialog.
+	 * @param filter The file extension to enforce.
+	 * @param name The initial name shown to save the file as.
+	 * @return The file that was selected or <code>null</code>.
+	 * @see #showFileSaveDialog(FileExtension, String)
+	 */
+	private static final Path saveFile(FileExtension filter, String name){
 		Objects.requireNonNull(name, "Provided default name cannot be null.");
-		if(initialised){
+		if(ConsoleBackend.isEnabled()){
+			return ConsoleBackend.saveFile(name, getSaveExtension(filter));
+		}else if(filter == null ? isNative() : isNative(filter)){
 			return toPath(showNativeFileSave(filter != null ? filter.nativeID : 0, name));
 		}else{
-			if(chooser == null){
-				chooser = new JFileChooser();
-			}
-			
+			JFileChooser chooser = saveChooser.get();
+			boolean configure = saveChooser.configure(filter);
 			String extension;
 			if(filter == null){
-				chooser.setSelectedFile(new File(name));
-				chooser.setAcceptAllFileFilterUsed(true);
-				chooser.resetChoosableFileFilters();
+				if(configure){
+					chooser.setAcceptAllFileFilterUsed(true);
+					chooser.resetChoosableFileFilters();
+				}
 				extension = "";
 			}else{
-				extension = "." + filter.filter.getExtensions()[0].toLowerCase(Locale.ROOT);
-				chooser.setSelectedFile(new File(name + extension));
-				chooser.setAcceptAllFileFilterUsed(false);
-				chooser.setFileFilter(filter.filter);
+				if(configure){
+					chooser.setAcceptAllFileFilterUsed(false);
+					chooser.resetChoosableFileFilters();
+					chooser.setFileFilter(filter.filter);
+				}
+				extension = getSaveExtension(filter);
 			}
+			chooser.setSelectedFile(new File(name + extension));
 			
-			chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
 			while(chooser.showSaveDialog(Dialog.getParentFrame()) == JFileChooser.APPROVE_OPTION){
 				Path file = chooser.getSelectedFile().toPath();
 				Path fileName = file.getFileName();
@@ -183,7 +613,11 @@ public final class FileSelector{
 					file = file.resolveSibling(fileName.toString() + extension);
 				}
 				
-				if(Files.exists(file) && !Dialog.showConfirmDialog(fileName.toString() + " already exists.\nDo you want to replace it?")){
+				Status status = PathValidator.check(file, VALIDATION_DEADLINE);
+				if(status.type == Type.UNREACHABLE){
+					Dialog.showMessageDialog("The location of " + fileName.toString() + " could not be reached.\nCheck the connection and try again.");
+					continue;
+				}else if(status.exists() && !Dialog.showConfirmDialog(fileName.toString() + " already exists.\nDo you want to replace it?")){
 					continue;
 				}
 
@@ -193,6 +627,123 @@ public final class FileSelector{
 		}
 	}
 	
+	/**
+	 * Opens a file open dialog without blocking the calling thread. Dialogs
+	 * requested this way are shown one at a time in the order they were
+	 * requested. Native dialogs are shown on a dedicated dialog thread and
+	 * Swing dialogs on the event dispatch thread. Cancelling the returned
+	 * future removes a dialog that is still queued and closes a Swing dialog
+	 * that is already shown.
+	 * @param extensions The file extension filters to use. If none
+	 *        are provided then any extension is allowed.
+	 * @return A future that completes with the file that was selected,
+	 *         this file will exist on the file system. If the operation
+	 *         was cancelled the future completes with <code>null</code>.
+	 * @see #showFileOpenDialog(FileExtension...)
+	 */
+	public static final CompletableFuture<Path> showFileOpenDialogAsync(FileExtension... extensions){
+		Objects.requireNonNull(extensions, "The extensions array cannot be null.");
+		FileExtension[] filters = extensions.clone();
+		return DialogQueue.submit(getDialogBackend(filters), ()->showFileOpenDialog(filters), FileSelector::cancelSwingDialogs);
+	}
+	
+	/**
+	 * Opens a folder open dialog without blocking the calling thread.
+	 * Dialogs are queued as described for {@link #showFileOpenDialogAsync(FileExtension...)}.
+	 * @return A future that completes with the folder that was selected,
+	 *         this folder will exist on the file system. If the operation
+	 *         was cancelled the future completes with <code>null</code>.
+	 * @see #showFolderOpenDialog()
+	 */
+	public static final CompletableFuture<Path> showFolderOpenDialogAsync(){
+		return DialogQueue.submit(getDialogBackend(), FileSelector::showFolderOpenDialog, FileSelector::cancelSwingDialogs);
+	}
+	
+	/**
+	 * Opens a file save dialog without blocking the calling thread.
+	 * Dialogs are queued as described for {@link #showFileOpenDialogAsync(FileExtension...)}.
+	 * @param filter The file extension to enforce.
+	 * @param name The initial name shown to save the file as.
+	 * @return A future that completes with the file that was selected,
+	 *         this file may or may not actually exist on the file system.
+	 *         If the file exists the user has already agreed to overwrite
+	 *         it. If the operation was cancelled the future completes
+	 *         with <code>null</code>.
+	 * @throws NullPointerException When the provided
+	 *         default name is <code>null</code>.
+	 * @see #showFileSaveDialog(FileExtension, String)
+	 */
+	public static final CompletableFuture<Path> showFileSaveDialogAsync(FileExtension filter, String name) throws NullPointerException{
+		Objects.requireNonNull(name, "Provided default name cannot be null.");
+		return DialogQueue.submit(filter == null ? getDialogBackend() : getDialogBackend(filter), ()->showFileSaveDialog(filter, name), FileSelector::cancelSwingDialogs);
+	}
+	
+	/**
+	 * Starts a flight event for a file dialog.
+	 * @param mode The mode of the dialog.
+	 * @return The started event.
+	 * @see #endDialog(FlightEvent, boolean, BooleanSupplier)
+	 */
+	private static final FlightEvent beginDialog(String mode){
+		return FlightEvent.begin(FlightEvent.FILE_DIALOG).set("mode", mode).set("console", ConsoleBackend.isEnabled());
+	}
+	
+	/**
+	 * Commits the flight event for a file dialog. Whether the dialog was
+	 * shown natively is only checked once loading the backend finished,
+	 * so recording the event never waits for the native library to load.
+	 * @param event The event to commit.
+	 * @param selected True if a selection was made.
+	 * @param nativeDialog Checks if the dialog was shown natively.
+	 * @see #beginDialog(String)
+	 */
+	private static final void endDialog(FlightEvent event, boolean selected, BooleanSupplier nativeDialog){
+		CompletableFuture<Boolean> loaded = backend.get();
+		boolean shown = !ConsoleBackend.isEnabled() && loaded != null && loaded.isDone() && nativeDialog.getAsBoolean();
+		event.set("selected", selected).set("nativeDialog", shown).commit();
+	}
+	
+	/**
+	 * Closes any Swing file chooser that is currently shown.
+	 */
+	private static final void cancelSwingDialogs(){
+		fileChooser.cancel();
+		multiFileChooser.cancel();
+		folderChooser.cancel();
+		saveChooser.cancel();
+	}
+	
+	/**
+	 * Checks if the given file matches any of the given extensions.
+	 * @param file The file to check.
+	 * @param extensions The extensions to match, if none are
+	 *        provided then any extension is allowed.
+	 * @return True if the file matches any of the extensions.
+	 */
+	private static final boolean accepts(Path file, FileExtension... extensions){
+		if(extensions.length == 0){
+			return true;
+		}
+		
+		for(FileExtension ext : extensions){
+			if(ext.filter.test(file)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Gets the extension appended to saved files without an extension.
+	 * @param filter The file extension to enforce or <code>null</code>.
+	 * @return The extension including the leading period or an empty
+	 *         string if any extension is allowed.
+	 */
+	private static final String getSaveExtension(FileExtension filter){
+		String extension = filter == null ? null : filter.filter.getDefaultExtension();
+		return extension == null ? "" : "." + extension;
+	}
+	
 	/**
 	 * Converts the given file path to a
 	 * Java path instance.
@@ -209,46 +760,59 @@ public final class FileSelector{
 	
 	/**
 	 * Registers a new file extension for use as
-	 * extension filter in the file selector. Note that
-	 * only a maximum of 64 native file extensions can be registered.
+	 * extension filter in the file selector. Registering
+	 * the same description and extensions again returns
+	 * the previously registered file extension. The native
+	 * dialogs support at most 64 file extensions, dialogs
+	 * using extensions registered after that are shown
+	 * with the Swing file chooser instead.
 	 * @param description The description of the extension.
 	 * @param extensions The extensions matched by the extension
 	 *        filter. The extensions should not include the period
-	 *        before their name.
-	 * @return The newly registered file extension.
+	 *        before their name. Extensions may consist of multiple
+	 *        parts such as <code>tar.gz</code> and may be glob patterns
+	 *        as described for {@link ExtensionFilter}.
+	 * @return The registered file extension.
 	 * @throws NullPointerException When the given description is <code>null</code>.
 	 * @throws IllegalArgumentException When one of the extensions is invalid.
-	 * @throws TooManyExtensionsException When an attempt is made to register more
-	 *         than 64 native file extensions.
 	 * @throws IllegalStateException When registering the native file extension failed.
 	 * @see FileExtension
 	 */
-	public static FileExtension registerFileExtension(String description, String... extensions) throws NullPointerException, IllegalArgumentException, TooManyExtensionsException, IllegalStateException{
+	public static FileExtension registerFileExtension(String description, String... extensions) throws NullPointerException, IllegalArgumentException, IllegalStateException{
 		if(extensions == null || extensions.length == 0){
 			throw new IllegalArgumentException("Extensions array cannot be empty or null.");
 		}
 		Objects.requireNonNull(description, "Description may not be null.");
 		
-		FileExtension ext = new FileExtension();
-		if(initialised){
-			StringJoiner joiner = new StringJoiner(";*.", "*.", "");
-			for(String extension : extensions){
-				if(extension == null || extension.trim().isEmpty()){
-					throw new IllegalArgumentException("Each extension must be non-null and non-empty.");
-				}
-				joiner.add(extension);
-			}
-			
-			ext.nativeID = registerNativeFileExtension(description, joiner.toString(), extensions[0]);
-			if(ext.nativeID == -1){
-				throw new IllegalStateException("Failed to register native extension.");
-			}else if(ext.nativeID == -2){
-				throw new TooManyExtensionsException();
+		String[] key = new String[extensions.length + 1];
+		key[0] = description;
+		for(int i = 0; i < extensions.length; i++){
+			if(extensions[i] == null || extensions[i].trim().isEmpty()){
+				throw new IllegalArgumentException("Each extension must be non-null and non-empty.");
 			}
-		}else{
-			ext.filter = new FileNameExtensionFilter(description, extensions);
+			key[i + 1] = extensions[i];
 		}
-		return ext;
+		
+		boolean nativeBackend = !ConsoleBackend.isEnabled() && isNative();
+		return registeredExtensions.computeIfAbsent(Arrays.asList(key), k->{
+			FileExtension ext = new FileExtension(new ExtensionFilter(description, extensions));
+			if(nativeBackend){
+				StringJoiner joiner = new StringJoiner(";*.", "*.", "");
+				for(String extension : extensions){
+					joiner.add(extension);
+				}
+				
+				String def = ext.filter.getDefaultExtension();
+				long id = registerNativeFileExtension(description, joiner.toString(), def == null ? "" : def);
+				if(id == -1L){
+					throw new IllegalStateException("Failed to register native extension.");
+				}
+				
+				//Once all native slots are used the extension is only available to the Swing choosers
+				ext.nativeID = id == -2L ? 0L : id;
+			}
+			return ext;
+		});
 	}
 	
 	/**
@@ -261,6 +825,18 @@ public final class FileSelector{
 	 */
 	private static synchronized native String showNativeFileOpen(long types, int typec);
 	
+	/**
+	 * Opens the native file open dialog with multiple selection enabled.
+	 * This entry point is optional, libraries that do not export it
+	 * cause an {@link UnsatisfiedLinkError} when it is called.
+	 * @param types The bitwise combination of the IDs of all the
+	 *        registered file extension filters that should be enabled.
+	 * @param typec The number of bits set in <code>types</code>.
+	 * @return The files that were selected or
+	 *         <code>null</code> if no files were selected.
+	 */
+	private static synchronized native String[] showNativeMultiFileOpen(long types, int typec);
+	
 	/**
 	 * Opens the native folder open dialog.
 	 * @return The folder that was selected or
@@ -284,46 +860,95 @@ public final class FileSelector{
 	 * @param filter The filter string to use for the extension.
 	 * @param extension The default extension to use for files
 	 *        used under the extension.
-	 * @return The ID of the newly registered extension.
+	 * @return The ID of the newly registered extension, a single bit.
+	 *         If registering the extension failed -1 is returned and
+	 *         if the maximum of {@value #NATIVE_EXTENSIONS} extensions
+	 *         was already registered -2 is returned.
 	 */
 	private static synchronized native long registerNativeFileExtension(String desc, String filter, String extension);
 	
-	static{
-		initialised = false;
-
-		if(System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("windows")){
-			String arch = System.getProperty("os.arch");
-			if(arch.equals("amd64") || arch.equals("x86")){
-				try(InputStream in = ClassLoader.getSystemResourceAsStream("dev/roanh/util/lib/" + arch + "/Util.dll")){
-					if(in != null){
-						Path tmp = null;
-						boolean write = false;
-						if(Util.VERSION != null){
-							tmp = Paths.get(System.getProperty("java.io.tmpdir")).resolve("RoanH-Util-v" + Util.VERSION + "-" + arch + ".dll");
-							write = Files.notExists(tmp);
-						}else{
-							tmp = Files.createTempFile("Util", ".dll");
-							tmp.toFile().deleteOnExit();
-							write = true;
-						}
-
-						if(write){
-							try(OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.CREATE)){
-								byte[] buffer = new byte[1024];
-								int len;
-								while((len = in.read(buffer)) != -1){
-									out.write(buffer, 0, len);
-								}
-								
-								out.flush();
-							}
-						}
-						
-						System.load(tmp.toAbsolutePath().toString());
-						initialised = true;
+	/**
+	 * Swing file chooser for a single selection mode that is
+	 * constructed once and only reconfigured when the requested
+	 * configuration differs from the previous one.
+	 * @author Roan
+	 */
+	private static final class Chooser{
+		/**
+		 * The file selection mode of the chooser.
+		 */
+		private final int mode;
+		/**
+		 * True if multiple files can be selected.
+		 */
+		private final boolean multiple;
+		/**
+		 * The file chooser, <code>null</code> if not constructed yet.
+		 */
+		private JFileChooser chooser = null;
+		/**
+		 * The look and feel the chooser was last updated for.
+		 */
+		private LookAndFeel laf = null;
+		/**
+		 * The last configuration applied to the chooser.
+		 */
+		private Object config = new Object();
+		
+		/**
+		 * Constructs a new chooser.
+		 * @param mode The file selection mode of the chooser.
+		 * @param multiple True if multiple files can be selected.
+		 */
+		private Chooser(int mode, boolean multiple){
+			this.mode = mode;
+			this.multiple = multiple;
+		}
+		
+		/**
+		 * Gets the file chooser, constructing it if required. If the
+		 * look and feel changed since the chooser was constructed the
+		 * chooser is updated for the new look and feel.
+		 * @return The file chooser.
+		 */
+		private synchronized JFileChooser get(){
+			if(chooser == null){
+				chooser = new JFileChooser(CachedFileSystemView.getInstance());
+				chooser.setFileSelectionMode(mode);
+				chooser.setMultiSelectionEnabled(multiple);
+				laf = UIManager.getLookAndFeel();
+			}else if(laf != UIManager.getLookAndFeel()){
+				SwingUtilities.updateComponentTreeUI(chooser);
+				laf = UIManager.getLookAndFeel();
+			}
+			return chooser;
+		}
+		
+		/**
+		 * Records the configuration for the next dialog.
+		 * @param config The configuration for the next dialog.
+		 * @return True if the chooser has to be reconfigured
+		 *         because the configuration changed.
+		 */
+		private synchronized boolean configure(Object config){
+			if(Objects.equals(this.config, config)){
+				return false;
+			}
+			this.config = config;
+			return true;
+		}
+		
+		/**
+		 * Closes the chooser if it is currently shown.
+		 */
+		private synchronized void cancel(){
+			JFileChooser shown = chooser;
+			if(shown != null){
+				SwingUtilities.invokeLater(()->{
+					if(shown.isShowing()){
+						shown.cancelSelection();
 					}
-				}catch(IOException | UnsatisfiedLinkError ignore){
-				}				
+				});
 			}
 		}
 	}
@@ -337,28 +962,45 @@ public final class FileSelector{
 	 */
 	public static final class FileExtension{
 		/**
-		 * The native ID of the registered extension.
+		 * The native ID of the registered extension, 0 if the
+		 * extension is not registered with the native library.
 		 */
-		private long nativeID;
+		private long nativeID = 0L;
 		/**
-		 * The Swing extension filter for this extension.
+		 * The compiled filter for this extension, used by the Swing
+		 * file choosers and to match files on the console.
 		 */
-		private FileNameExtensionFilter filter;
+		private final ExtensionFilter filter;
 		
 		/**
 		 * Constructs a new FileExtension.
+		 * @param filter The compiled filter for the extension.
+		 */
+		private FileExtension(ExtensionFilter filter){
+			this.filter = filter;
+		}
+		
+		/**
+		 * Gets the compiled filter for this extension. The filter can
+		 * be used as a Swing file filter and as a predicate to filter
+		 * streams of paths by their name.
+		 * @return The filter for this extension.
 		 */
-		private FileExtension(){
+		public ExtensionFilter getFilter(){
+			return filter;
 		}
 	}
 	
 	/**
-	 * Exception that is thrown when an attempt is made
+	 * Exception that was thrown when an attempt was made
 	 * to register more than the maximum of 64 native
 	 * file extensions.
 	 * @author Roan
-	 * @see FileSelector#registerFileExtension(String, String...)
+	 * @deprecated Extensions registered after the native limit is
+	 *             reached are shown in the Swing file chooser instead,
+	 *             this exception is never thrown.
 	 */
+	@Deprecated
 	public static final class TooManyExtensionsException extends RuntimeException{
 		/**
 		 * Serial ID.
@@ -18,6 +18,7 @@
  */
 package dev.roanh.util;
 
+import java.awt.Color;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.dnd.DnDConstants;
@@ -26,18 +27,61 @@ import java.awt.dnd.DropTargetDragEvent;
 import java.awt.dnd.DropTargetDropEvent;
 import java.awt.dnd.DropTargetEvent;
 import java.awt.dnd.DropTargetListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
 import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 
+import dev.roanh.util.DirectoryWatcher.Registration;
+import dev.roanh.util.PathValidator.Status;
+
 /**
- * Text field that supports drag and drop events for files.
+ * Text field that supports drag and drop events for files. Content
+ * changes are reported to the listener after the current event has
+ * been processed, so that changes made together such as those made by
+ * {@link #setText(String)} are reported once. Optionally the listener
+ * is only notified once the content did not change for a given time.
+ * The listener is never notified when the content did not actually change.
+ * <p>
+ * The field can also validate its content, in which case the status of
+ * the path is checked in the background and the text is shown in red when
+ * the path does not match the validation mode. Checks go through a process
+ * wide cache, so fields showing paths in the same directories share their
+ * file system accesses. The parent directory of the path is watched while
+ * the field is displayed, so the status is updated when the file changes.
+ * <p>
+ * Optionally the field suggests completions for the last part of the typed
+ * path. Suggestions are looked up in an index of the typed directory that is
+ * built in the background when the directory is first typed into and that is
+ * kept up to date while it is used, so suggestions show up immediately even
+ * for very large directories.
+ * <p>
+ * By default only the first dropped file is shown in the field. When a drop
+ * listener is set all dropped files are passed to it instead, optionally with
+ * dropped directories expanded to all the files they contain. Dropped files
+ * are processed in the background and passed to the drop listener in batches
+ * as they are found, so dropping large directory trees does not block the
+ * user interface.
  * @author Roan
  */
 public class FileTextField extends JTextField implements DropTargetListener, DocumentListener{
@@ -45,10 +89,111 @@ public class FileTextField extends JTextField implements DropTargetListener, Doc
 	 * Serial ID.
 	 */
 	private static final long serialVersionUID = 5787255014444489626L;
+	/**
+	 * The text color used when the path does not match the validation mode.
+	 */
+	private static final Color INVALID_COLOR = new Color(200, 0, 0);
+	/**
+	 * The maximum number of completions suggested.
+	 */
+	private static final int MAX_SUGGESTIONS = 50;
 	/**
 	 * Consumer that gets notified when the selected folder or file changes.
 	 */
 	private transient FileChangeListener listener;
+	/**
+	 * The time in milliseconds the content has to remain
+	 * unchanged before the listener is notified.
+	 */
+	private int debounce = 0;
+	/**
+	 * Whether the listener is notified on a background thread
+	 * instead of on the event dispatch thread.
+	 */
+	private boolean background = false;
+	/**
+	 * Timer used to delay notifications when a debounce time is set.
+	 */
+	private transient Timer timer = null;
+	/**
+	 * True if a notification is scheduled without delay.
+	 */
+	private transient volatile boolean scheduled = false;
+	/**
+	 * The content the listener was last notified of.
+	 */
+	private transient String notified = null;
+	/**
+	 * Cached path for the current content, <code>null</code> if
+	 * the content changed since the path was last requested.
+	 */
+	private transient volatile Path path = null;
+	/**
+	 * Completes once all background notifications so far were
+	 * delivered, <code>null</code> if none were delivered yet.
+	 */
+	private transient CompletableFuture<Void> delivery = null;
+	/**
+	 * The validation mode of this field.
+	 */
+	private Validation validation = Validation.NONE;
+	/**
+	 * The last known state of the path in this field.
+	 */
+	private PathState state = PathState.UNKNOWN;
+	/**
+	 * The text color to restore when the path becomes valid
+	 * again, <code>null</code> if the path is not shown as invalid.
+	 */
+	private Color validColor = null;
+	/**
+	 * The parent directory that is watched for changes,
+	 * <code>null</code> if no directory is watched.
+	 */
+	private transient Path watchedDir = null;
+	/**
+	 * The watch registration for the watched directory or
+	 * <code>null</code> if the directory cannot be watched.
+	 */
+	private transient Registration watch = null;
+	/**
+	 * Whether completions are suggested for the typed path.
+	 */
+	private boolean autoComplete = false;
+	/**
+	 * True if updating the suggestions is scheduled.
+	 */
+	private transient volatile boolean suggesting = false;
+	/**
+	 * The popup showing the suggested completions,
+	 * <code>null</code> if not created yet.
+	 */
+	private transient JPopupMenu suggestions = null;
+	/**
+	 * The model with the suggested completions.
+	 */
+	private transient DefaultListModel<String> suggestionModel = null;
+	/**
+	 * The list showing the suggested completions.
+	 */
+	private transient JList<String> suggestionList = null;
+	/**
+	 * The directory part of the path the suggestions complete.
+	 */
+	private transient String suggestionBase = null;
+	/**
+	 * Listener that gets passed all dropped files,
+	 * <code>null</code> if only the first dropped file is shown.
+	 */
+	private transient FileDropListener dropListener = null;
+	/**
+	 * Whether dropped directories are expanded to the files they contain.
+	 */
+	private boolean expandDirectories = false;
+	/**
+	 * The drop that is being processed, <code>null</code> if none.
+	 */
+	private transient FileDrop activeDrop = null;
 
 	/**
 	 * Constructs a new file text field.
@@ -68,6 +213,46 @@ public class FileTextField extends JTextField implements DropTargetListener, Doc
 		this.getDocument().addDocumentListener(this);
 		new DropTarget(this, this);
 		setListener(listener);
+		
+		addKeyListener(new KeyAdapter(){
+			@Override
+			public void keyPressed(KeyEvent e){
+				if(suggestions != null && suggestions.isVisible()){
+					int idx = suggestionList.getSelectedIndex();
+					switch(e.getKeyCode()){
+					case KeyEvent.VK_DOWN:
+						suggestionList.setSelectedIndex(Math.min(idx + 1, suggestionModel.size() - 1));
+						suggestionList.ensureIndexIsVisible(suggestionList.getSelectedIndex());
+						e.consume();
+						break;
+					case KeyEvent.VK_UP:
+						suggestionList.setSelectedIndex(Math.max(idx - 1, 0));
+						suggestionList.ensureIndexIsVisible(suggestionList.getSelectedIndex());
+						e.consume();
+						break;
+					case KeyEvent.VK_ENTER:
+						acceptSuggestion();
+						e.consume();
+						break;
+					case KeyEvent.VK_ESCAPE:
+						suggestions.setVisible(false);
+						e.consume();
+						break;
+					default:
+						break;
+					}
+				}
+			}
+		});
+		
+		addFocusListener(new FocusAdapter(){
+			@Override
+			public void focusLost(FocusEvent e){
+				if(suggestions != null){
+					suggestions.setVisible(false);
+				}
+			}
+		});
 	}
 	
 	/**
@@ -80,13 +265,414 @@ public class FileTextField extends JTextField implements DropTargetListener, Doc
 	}
 	
 	/**
-	 * Sends a content update to the
-	 * listener if one is set.
+	 * Sets the time the content of this field has to remain unchanged
+	 * before the listener is notified of the change. This is useful when
+	 * the listener does expensive work such as scanning a folder, as it
+	 * is then not notified for every typed character.
+	 * @param millis The debounce time in milliseconds, if 0 the
+	 *        listener is notified as soon as possible.
+	 * @throws IllegalArgumentException When the given time is negative.
+	 */
+	public void setDebounce(int millis) throws IllegalArgumentException{
+		if(millis < 0){
+			throw new IllegalArgumentException("Debounce time cannot be negative.");
+		}
+		debounce = millis;
+	}
+	
+	/**
+	 * Gets the time the content of this field has to remain
+	 * unchanged before the listener is notified of the change.
+	 * @return The debounce time in milliseconds.
+	 * @see #setDebounce(int)
+	 */
+	public int getDebounce(){
+		return debounce;
+	}
+	
+	/**
+	 * Sets whether the listener is notified on a background thread
+	 * instead of on the event dispatch thread. Background notifications
+	 * are still delivered one at a time in the order of the changes.
+	 * @param background True to notify the listener on a background thread.
+	 */
+	public void setNotifyInBackground(boolean background){
+		this.background = background;
+	}
+	
+	/**
+	 * Checks whether the listener is notified on a background thread.
+	 * @return True if the listener is notified on a background thread.
+	 * @see #setNotifyInBackground(boolean)
+	 */
+	public boolean isNotifyInBackground(){
+		return background;
+	}
+	
+	/**
+	 * Sets the listener to pass all dropped files to. When a drop listener
+	 * is set the dropped files are no longer shown in this field. Dropped
+	 * files are passed to the listener in batches, on the event dispatch
+	 * thread or on a background thread depending on the same setting as
+	 * the content listener. A new drop stops the processing of the previous
+	 * drop, after which no more batches from the previous drop are passed.
+	 * @param listener The listener to pass dropped files to or
+	 *        <code>null</code> to show the first dropped file instead.
+	 * @see #setNotifyInBackground(boolean)
+	 * @see #setExpandDirectories(boolean)
+	 */
+	public void setDropListener(FileDropListener listener){
+		dropListener = listener;
+		if(listener == null && activeDrop != null){
+			activeDrop.cancel();
+			activeDrop = null;
+		}
+	}
+	
+	/**
+	 * Gets the listener all dropped files are passed to.
+	 * @return The drop listener or <code>null</code> if none is set.
+	 * @see #setDropListener(FileDropListener)
+	 */
+	public FileDropListener getDropListener(){
+		return dropListener;
+	}
+	
+	/**
+	 * Sets whether dropped directories are expanded to all the files
+	 * they contain before they are passed to the drop listener.
+	 * Directories are walked in parallel in the background without
+	 * following symbolic links and unreadable directories are skipped.
+	 * @param expand True to expand dropped directories.
+	 * @see #setDropListener(FileDropListener)
+	 */
+	public void setExpandDirectories(boolean expand){
+		expandDirectories = expand;
+	}
+	
+	/**
+	 * Checks whether dropped directories are expanded
+	 * to the files they contain.
+	 * @return True if dropped directories are expanded.
+	 * @see #setExpandDirectories(boolean)
+	 */
+	public boolean isExpandDirectories(){
+		return expandDirectories;
+	}
+	
+	/**
+	 * Sets the validation mode of this field. When a mode other than
+	 * {@link Validation#NONE} is set the status of the path in this field
+	 * is checked in the background and shown by the color of the text.
+	 * @param validation The validation mode.
+	 * @see #getPathState()
+	 */
+	public void setValidation(Validation validation){
+		this.validation = validation == null ? Validation.NONE : validation;
+		validatePath();
+	}
+	
+	/**
+	 * Gets the validation mode of this field.
+	 * @return The validation mode.
+	 * @see #setValidation(Validation)
+	 */
+	public Validation getValidation(){
+		return validation;
+	}
+	
+	/**
+	 * Gets the last known state of the path in this field. This state is
+	 * only updated when a validation mode is set. Changes to the state
+	 * are reported as changes to the <code>pathState</code> property.
+	 * @return The last known state of the path.
+	 * @see #setValidation(Validation)
+	 */
+	public PathState getPathState(){
+		return state;
+	}
+	
+	/**
+	 * Sets whether completions are suggested for the last part of
+	 * the path typed into this field. Suggestions can be selected
+	 * with the arrow keys and accepted with enter or a click.
+	 * @param autoComplete True to suggest completions.
+	 */
+	public void setAutoComplete(boolean autoComplete){
+		this.autoComplete = autoComplete;
+		if(!autoComplete && suggestions != null){
+			suggestions.setVisible(false);
+		}
+	}
+	
+	/**
+	 * Checks whether completions are suggested for the typed path.
+	 * @return True if completions are suggested.
+	 * @see #setAutoComplete(boolean)
+	 */
+	public boolean isAutoComplete(){
+		return autoComplete;
+	}
+	
+	/**
+	 * Updates the suggested completions for the path in this field.
+	 */
+	private void suggest(){
+		suggesting = false;
+		if(!autoComplete || !hasFocus()){
+			hideSuggestions();
+			return;
+		}
+		
+		String text = getText();
+		int split = Math.max(text.lastIndexOf('/'), text.lastIndexOf(File.separatorChar));
+		if(split == -1){
+			hideSuggestions();
+			return;
+		}
+		
+		String base = text.substring(0, split + 1);
+		String prefix = text.substring(split + 1);
+		CompletableFuture<PathIndex> index;
+		try{
+			index = PathIndex.get(Paths.get(base));
+		}catch(InvalidPathException | SecurityException e){
+			hideSuggestions();
+			return;
+		}
+		
+		if(index.isDone()){
+			List<String> matches = index.join().complete(prefix, MAX_SUGGESTIONS);
+			if(matches.isEmpty() || (matches.size() == 1 && matches.get(0).equals(prefix))){
+				hideSuggestions();
+			}else{
+				showSuggestions(base, matches);
+			}
+		}else{
+			index.thenRun(()->SwingUtilities.invokeLater(()->{
+				if(text.equals(getText())){
+					suggest();
+				}
+			}));
+		}
+	}
+	
+	/**
+	 * Shows the given completions below this field.
+	 * @param base The directory part of the path the completions complete.
+	 * @param matches The completions to show.
+	 */
+	private void showSuggestions(String base, List<String> matches){
+		if(suggestions == null){
+			suggestionModel = new DefaultListModel<String>();
+			suggestionList = new JList<String>(suggestionModel);
+			suggestionList.setFocusable(false);
+			suggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+			suggestionList.addMouseListener(new MouseAdapter(){
+				@Override
+				public void mouseClicked(MouseEvent e){
+					acceptSuggestion();
+				}
+			});
+			
+			JScrollPane pane = new JScrollPane(suggestionList);
+			pane.setBorder(null);
+			suggestions = new JPopupMenu();
+			suggestions.setFocusable(false);
+			suggestions.add(pane);
+		}
+		
+		suggestionBase = base;
+		suggestionModel.clear();
+		for(String match : matches){
+			suggestionModel.addElement(match);
+		}
+		suggestionList.setVisibleRowCount(Math.min(10, matches.size()));
+		suggestionList.setSelectedIndex(0);
+		
+		suggestions.setPopupSize(getWidth(), suggestionList.getPreferredScrollableViewportSize().height + 4);
+		if(suggestions.isVisible()){
+			suggestions.pack();
+		}else{
+			suggestions.show(this, 0, getHeight());
+		}
+	}
+	
+	/**
+	 * Hides the suggested completions if they are shown.
+	 */
+	private void hideSuggestions(){
+		if(suggestions != null){
+			suggestions.setVisible(false);
+		}
+	}
+	
+	/**
+	 * Completes the path in this field with the selected suggestion.
+	 */
+	private void acceptSuggestion(){
+		String selected = suggestionList.getSelectedValue();
+		hideSuggestions();
+		if(selected != null){
+			setText(suggestionBase + selected);
+		}
+	}
+	
+	/**
+	 * Checks the status of the path in this field in the background
+	 * and updates the state once the status is known.
+	 */
+	private void validatePath(){
+		if(validation == Validation.NONE){
+			unwatch();
+			setPathState(PathState.UNKNOWN);
+			return;
+		}
+		
+		String text = getText();
+		Path file;
+		try{
+			file = text.isEmpty() ? null : getPath().toAbsolutePath();
+		}catch(InvalidPathException | SecurityException e){
+			file = null;
+		}
+		
+		if(file == null){
+			unwatch();
+			setPathState(PathState.INVALID);
+			return;
+		}
+		
+		if(isDisplayable()){
+			watch(file.getParent());
+		}
+		
+		CompletableFuture<Status> status = PathValidator.getStatus(file);
+		if(status.isDone()){
+			setPathState(PathState.valueOf(status.join().type.name()));
+		}else{
+			status.thenAccept(result->SwingUtilities.invokeLater(()->{
+				if(text.equals(getText()) && validation != Validation.NONE){
+					setPathState(PathState.valueOf(result.type.name()));
+				}
+			}));
+		}
+	}
+	
+	/**
+	 * Updates the state of the path in this field and the text color.
+	 * @param state The new state of the path.
+	 */
+	private void setPathState(PathState state){
+		PathState old = this.state;
+		this.state = state;
+		
+		boolean valid = validation.accepts(state);
+		if(valid && validColor != null){
+			setForeground(validColor);
+			validColor = null;
+		}else if(!valid && validColor == null){
+			validColor = getForeground();
+			setForeground(INVALID_COLOR);
+		}
+		
+		firePropertyChange("pathState", old, state);
+	}
+	
+	/**
+	 * Watches the given directory for changes to revalidate the path.
+	 * @param dir The directory to watch, possibly <code>null</code>.
+	 */
+	private void watch(Path dir){
+		if(dir != null && dir.equals(watchedDir)){
+			return;
+		}
+		
+		unwatch();
+		if(dir != null){
+			watchedDir = dir;
+			watch = DirectoryWatcher.watch(dir, changed->SwingUtilities.invokeLater(this::validatePath));
+		}
+	}
+	
+	/**
+	 * Stops watching the parent directory of the path.
+	 */
+	private void unwatch(){
+		if(watch != null){
+			watch.cancel();
+			watch = null;
+		}
+		watchedDir = null;
+	}
+	
+	@Override
+	public void addNotify(){
+		super.addNotify();
+		if(validation != Validation.NONE){
+			validatePath();
+		}
+	}
+	
+	@Override
+	public void removeNotify(){
+		super.removeNotify();
+		unwatch();
+	}
+	
+	/**
+	 * Schedules a content update for the listener after
+	 * the content of this field changed.
 	 * @see #setListener(FileChangeListener)
+	 * @see #setDebounce(int)
 	 */
 	private void update(){
-		if(listener != null){
-			listener.onContentChange(getText(), getPath());
+		path = null;
+		if(autoComplete && !suggesting){
+			suggesting = true;
+			SwingUtilities.invokeLater(this::suggest);
+		}
+		
+		if(debounce > 0){
+			SwingUtilities.invokeLater(()->{
+				if(timer == null){
+					timer = new Timer(debounce, e->notifyListener());
+					timer.setRepeats(false);
+				}
+				timer.setInitialDelay(debounce);
+				timer.restart();
+			});
+		}else if(!scheduled){
+			scheduled = true;
+			SwingUtilities.invokeLater(this::notifyListener);
+		}
+	}
+	
+	/**
+	 * Sends a content update to the listener if one is set
+	 * and the content changed since the last update.
+	 */
+	private void notifyListener(){
+		scheduled = false;
+		String text = getText();
+		if(text.equals(notified)){
+			return;
+		}
+		notified = text;
+		
+		if(validation != Validation.NONE){
+			validatePath();
+		}
+		
+		FileChangeListener target = listener;
+		if(target != null){
+			Path file = getPath();
+			if(background){
+				Runnable task = ()->target.onContentChange(text, file);
+				delivery = delivery == null ? CompletableFuture.runAsync(task, Scheduler.getExecutor()) : delivery.exceptionally(e->null).thenRunAsync(task, Scheduler.getExecutor());
+			}else{
+				target.onContentChange(text, file);
+			}
 		}
 	}
 	
@@ -99,11 +685,17 @@ public class FileTextField extends JTextField implements DropTargetListener, Doc
 	}
 	
 	/**
-	 * Gets the content of this text field as a path.
+	 * Gets the content of this text field as a path. The
+	 * path is cached until the content of the field changes.
 	 * @return The content of this text field as a path.
 	 */
 	public Path getPath(){
-		return Paths.get(getText());
+		Path cached = path;
+		if(cached == null){
+			cached = Paths.get(getText());
+			path = cached;
+		}
+		return cached;
 	}
 	
 	/**
@@ -152,7 +744,14 @@ public class FileTextField extends JTextField implements DropTargetListener, Doc
 				dtde.acceptDrop(DnDConstants.ACTION_COPY_OR_MOVE);
 				@SuppressWarnings("unchecked")
 				List<File> files = (List<File>)dtde.getTransferable().getTransferData(DataFlavor.javaFileListFlavor);
-				if(!files.isEmpty()){
+				FileDropListener target = dropListener;
+				if(target != null){
+					dtde.dropComplete(true);
+					if(activeDrop != null){
+						activeDrop.cancel();
+					}
+					activeDrop = files.isEmpty() ? null : new FileDrop(files, target, expandDirectories, background).start();
+				}else if(!files.isEmpty()){
 					this.setText(files.get(0).getAbsolutePath());
 				}
 			}catch(UnsupportedFlavorException | IOException ignore){
@@ -161,6 +760,88 @@ public class FileTextField extends JTextField implements DropTargetListener, Doc
 		}
 	}
 	
+	/**
+	 * Validation modes for the path in a file text field.
+	 * @author Roan
+	 * @see FileTextField#setValidation(Validation)
+	 */
+	public static enum Validation{
+		/**
+		 * The path is not validated.
+		 */
+		NONE,
+		/**
+		 * The path has to exist.
+		 */
+		EXISTS,
+		/**
+		 * The path has to be an existing file.
+		 */
+		FILE,
+		/**
+		 * The path has to be an existing directory.
+		 */
+		DIRECTORY;
+		
+		/**
+		 * Checks if the given state is valid for this mode.
+		 * @param state The state to check.
+		 * @return True if the state is valid.
+		 */
+		private boolean accepts(PathState state){
+			switch(this){
+			case EXISTS:
+				return state == PathState.FILE || state == PathState.DIRECTORY || state == PathState.OTHER;
+			case FILE:
+				return state == PathState.FILE;
+			case DIRECTORY:
+				return state == PathState.DIRECTORY;
+			default:
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * The state of the path in a file text field.
+	 * @author Roan
+	 * @see FileTextField#getPathState()
+	 */
+	public static enum PathState{
+		/**
+		 * The state of the path is not known yet.
+		 */
+		UNKNOWN,
+		/**
+		 * The field content is not a valid path.
+		 */
+		INVALID,
+		/**
+		 * The path is a regular file.
+		 */
+		FILE,
+		/**
+		 * The path is a directory.
+		 */
+		DIRECTORY,
+		/**
+		 * The path exists but is neither a regular file nor a directory.
+		 */
+		OTHER,
+		/**
+		 * Access to the path was denied.
+		 */
+		DENIED,
+		/**
+		 * The path does not exist.
+		 */
+		MISSING,
+		/**
+		 * The location of the path could not be reached.
+		 */
+		UNREACHABLE
+	}
+	
 	/**
 	 * Listener called when the file text field content changes.
 	 * @author Roan
@@ -176,4 +857,22 @@ public class FileTextField extends JTextField implements DropTargetListener, Doc
 		 */
 		public abstract void onContentChange(String content, Path path);
 	}
+	
+	/**
+	 * Listener called with the files dropped onto a file text field.
+	 * @author Roan
+	 * @see FileTextField#setDropListener(FileDropListener)
+	 */
+	@FunctionalInterface
+	public static abstract interface FileDropListener{
+		
+		/**
+		 * Called with the next batch of dropped files. Batches of a
+		 * single drop are passed one at a time and the final batch,
+		 * which may be empty, is marked as the last batch.
+		 * @param files The next batch of dropped files.
+		 * @param last True if this is the last batch for the drop.
+		 */
+		public abstract void onFilesDropped(List<Path> files, boolean last);
+	}
 }
@@ -0,0 +1,421 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Java Flight Recorder event for operations performed by this library.
+ * Event types are defined reflectively through <code>jdk.jfr.EventFactory</code>
+ * so that this library still runs on runtimes without the JFR API, such as
+ * Java 8, in which case all events are no-ops. Events are also no-ops when
+ * no recording that has them enabled is active. The JFR API is only accessed
+ * once the flight recorder is initialized and event types are only created
+ * the first time an event of that type is started.
+ * @author Roan
+ */
+final class FlightEvent{
+	/**
+	 * Event that does not record anything.
+	 */
+	private static final FlightEvent DISABLED = new FlightEvent(null, null);
+	/**
+	 * The <code>FlightRecorder.isInitialized</code> method or
+	 * <code>null</code> if the JFR API is not available.
+	 */
+	private static final Method initialized;
+	/**
+	 * Event for requests for the latest version of a repository.
+	 */
+	static final Type VERSION_CHECK;
+	/**
+	 * Event for the extraction and loading of the native library.
+	 */
+	static final Type NATIVE_LOAD;
+	/**
+	 * Event for building and packing a dialog.
+	 */
+	static final Type DIALOG_BUILD;
+	/**
+	 * Event for a dialog being shown until it is closed.
+	 */
+	static final Type DIALOG_SHOW;
+	/**
+	 * Event for a file dialog being shown until a file is selected.
+	 */
+	static final Type FILE_DIALOG;
+	/**
+	 * Event for copying the program jar to the temporary directory.
+	 */
+	static final Type JAR_COPY;
+	/**
+	 * Event for running the program from the temporary directory.
+	 */
+	static final Type RELAUNCH;
+	/**
+	 * The JFR event or <code>null</code> if this event is disabled.
+	 */
+	private final Object event;
+	/**
+	 * The type of this event.
+	 */
+	private final Type type;
+
+	/**
+	 * Constructs a new flight event.
+	 * @param type The type of the event.
+	 * @param event The JFR event to wrap.
+	 */
+	private FlightEvent(Type type, Object event){
+		this.type = type;
+		this.event = event;
+	}
+
+	/**
+	 * Starts timing a new event of the given type.
+	 * @param type The type of event to start.
+	 * @return The started event, this event does nothing
+	 *         if events of the given type are not recorded.
+	 */
+	static final FlightEvent begin(Type type){
+		if(isRecording()){
+			try{
+				Object factory = type.getFactory();
+				if(factory != null){
+					Object event = Api.newEvent.invoke(factory);
+					if((Boolean)Api.isEnabled.invoke(event)){
+						Api.begin.invoke(event);
+						return new FlightEvent(type, event);
+					}
+				}
+			}catch(ReflectiveOperationException | RuntimeException | LinkageError ignore){
+				//Recording is best effort
+			}
+		}
+		return DISABLED;
+	}
+
+	/**
+	 * Checks if the flight recorder is initialized, which is
+	 * the case once a recording was started at some point.
+	 * @return True if the flight recorder is initialized.
+	 */
+	private static final boolean isRecording(){
+		if(initialized != null){
+			try{
+				return (Boolean)initialized.invoke(null);
+			}catch(ReflectiveOperationException | RuntimeException ignore){
+				//Treat as not recording
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the value of a field of this event.
+	 * @param name The name of the field to set.
+	 * @param value The value for the field, this has to be
+	 *        the boxed type of the field.
+	 * @return This event.
+	 */
+	FlightEvent set(String name, Object value){
+		if(event != null){
+			try{
+				Api.set.invoke(event, type.indexOf(name), value);
+			}catch(ReflectiveOperationException | RuntimeException ignore){
+				//Recording is best effort
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Ends the timing of this event and commits it.
+	 */
+	void commit(){
+		if(event != null){
+			try{
+				Api.commit.invoke(event);
+			}catch(ReflectiveOperationException | RuntimeException ignore){
+				//Recording is best effort
+			}
+		}
+	}
+
+	/**
+	 * Defines a new event field.
+	 * @param type The type of the field.
+	 * @param name The name of the field.
+	 * @param label The human readable label of the field.
+	 * @return The defined field.
+	 */
+	private static final Field field(Class<?> type, String name, String label){
+		return new Field(type, name, label);
+	}
+
+	/**
+	 * Creates a JFR annotation element.
+	 * @param name The simple name of the annotation class.
+	 * @param value The value of the annotation.
+	 * @return The annotation element.
+	 * @throws ReflectiveOperationException When the JFR API is not available.
+	 */
+	private static final Object annotation(String name, Object value) throws ReflectiveOperationException{
+		return Api.annotation.newInstance(Class.forName("jdk.jfr." + name).asSubclass(Annotation.class), value);
+	}
+
+	/**
+	 * Holder for the JFR API methods, these are only looked
+	 * up once the flight recorder is initialized.
+	 * @author Roan
+	 */
+	private static final class Api{
+		/**
+		 * The <code>EventFactory.create</code> method.
+		 */
+		private static final Method create;
+		/**
+		 * The <code>EventFactory.newEvent</code> method.
+		 */
+		private static final Method newEvent;
+		/**
+		 * The <code>Event.isEnabled</code> method.
+		 */
+		private static final Method isEnabled;
+		/**
+		 * The <code>Event.begin</code> method.
+		 */
+		private static final Method begin;
+		/**
+		 * The <code>Event.set</code> method.
+		 */
+		private static final Method set;
+		/**
+		 * The <code>Event.commit</code> method.
+		 */
+		private static final Method commit;
+		/**
+		 * The <code>AnnotationElement</code> constructor.
+		 */
+		private static final Constructor<?> annotation;
+		/**
+		 * The <code>ValueDescriptor</code> constructor.
+		 */
+		private static final Constructor<?> descriptor;
+
+		static{
+			try{
+				Class<?> factory = Class.forName("jdk.jfr.EventFactory");
+				Class<?> event = Class.forName("jdk.jfr.Event");
+				newEvent = factory.getMethod("newEvent");
+				isEnabled = event.getMethod("isEnabled");
+				begin = event.getMethod("begin");
+				set = event.getMethod("set", int.class, Object.class);
+				commit = event.getMethod("commit");
+				annotation = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class);
+				descriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+				create = factory.getMethod("create", List.class, List.class);
+			}catch(ReflectiveOperationException e){
+				throw new NoClassDefFoundError(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Type of a flight event.
+	 * @author Roan
+	 */
+	static final class Type{
+		/**
+		 * The name of the event type.
+		 */
+		private final String name;
+		/**
+		 * The human readable label of the event type.
+		 */
+		private final String label;
+		/**
+		 * The description of the event type.
+		 */
+		private final String description;
+		/**
+		 * The fields of this type.
+		 */
+		private final Field[] fields;
+		/**
+		 * The JFR event factory, <code>null</code> if it was not
+		 * created yet or events of this type cannot be recorded.
+		 */
+		private Object factory = null;
+		/**
+		 * True once creating the event factory was attempted.
+		 */
+		private boolean created = false;
+
+		/**
+		 * Defines a new event type.
+		 * @param name The name of the event type.
+		 * @param label The human readable label of the event type.
+		 * @param description The description of the event type.
+		 * @param fields The fields of the event type.
+		 */
+		private Type(String name, String label, String description, Field... fields){
+			this.name = name;
+			this.label = label;
+			this.description = description;
+			this.fields = fields;
+		}
+
+		/**
+		 * Gets the JFR event factory for this type, creating it
+		 * the first time this method is called.
+		 * @return The event factory or <code>null</code> if
+		 *         events of this type cannot be recorded.
+		 */
+		private synchronized Object getFactory(){
+			if(!created){
+				created = true;
+				try{
+					List<Object> annotations = new ArrayList<>();
+					annotations.add(annotation("Name", "dev.roanh.util." + name));
+					annotations.add(annotation("Label", label));
+					annotations.add(annotation("Description", description));
+					annotations.add(annotation("Category", new String[]{"RoanH Util"}));
+
+					List<Object> descriptors = new ArrayList<>();
+					for(Field field : fields){
+						descriptors.add(Api.descriptor.newInstance(field.type, field.name, Collections.singletonList(annotation("Label", field.label))));
+					}
+
+					factory = Api.create.invoke(null, annotations, descriptors);
+				}catch(ReflectiveOperationException | RuntimeException | LinkageError ignore){
+					//Events of this type will not be recorded
+				}
+			}
+			return factory;
+		}
+
+		/**
+		 * Gets the index of the field with the given name.
+		 * @param name The name of the field.
+		 * @return The index of the field.
+		 * @throws IllegalArgumentException When no field with the given name exists.
+		 */
+		private int indexOf(String name) throws IllegalArgumentException{
+			for(int i = 0; i < fields.length; i++){
+				if(fields[i].name.equals(name)){
+					return i;
+				}
+			}
+			throw new IllegalArgumentException("Unknown field: " + name);
+		}
+	}
+
+	/**
+	 * Field of an event type.
+	 * @author Roan
+	 */
+	private static final class Field{
+		/**
+		 * The type of the field.
+		 */
+		private final Class<?> type;
+		/**
+		 * The name of the field.
+		 */
+		private final String name;
+		/**
+		 * The human readable label of the field.
+		 */
+		private final String label;
+
+		/**
+		 * Constructs a new field.
+		 * @param type The type of the field.
+		 * @param name The name of the field.
+		 * @param label The human readable label of the field.
+		 */
+		private Field(Class<?> type, String name, String label){
+			this.type = type;
+			this.name = name;
+			this.label = label;
+		}
+	}
+
+	static{
+		Method initializedMethod = null;
+		try{
+			initializedMethod = Class.forName("jdk.jfr.FlightRecorder", false, FlightEvent.class.getClassLoader()).getMethod("isInitialized");
+		}catch(ReflectiveOperationException | RuntimeException | LinkageError ignore){
+			//No JFR support, all events are disabled
+		}
+		initialized = initializedMethod;
+
+		VERSION_CHECK = new Type(
+			"VersionCheck", "Version Check", "Request for the latest release of a repository",
+			field(String.class, "host", "Host"),
+			field(String.class, "user", "User"),
+			field(String.class, "repository", "Repository"),
+			field(int.class, "status", "Status Code"),
+			field(long.class, "bytes", "Response Size"),
+			field(boolean.class, "cached", "Cached")
+		);
+		NATIVE_LOAD = new Type(
+			"NativeLoad", "Native Library Load", "Extraction and loading of the native file dialog library",
+			field(String.class, "path", "Path"),
+			field(boolean.class, "extracted", "Extracted"),
+			field(long.class, "bytes", "Library Size"),
+			field(boolean.class, "loaded", "Loaded")
+		);
+		DIALOG_BUILD = new Type(
+			"DialogBuild", "Dialog Build", "Construction and layout of a dialog",
+			field(String.class, "title", "Title"),
+			field(String.class, "modality", "Modality")
+		);
+		DIALOG_SHOW = new Type(
+			"DialogShow", "Dialog Show", "Dialog shown to the user until it was closed",
+			field(String.class, "title", "Title"),
+			field(String.class, "modality", "Modality"),
+			field(int.class, "option", "Selected Option")
+		);
+		FILE_DIALOG = new Type(
+			"FileDialog", "File Dialog", "File dialog shown to the user until it was closed",
+			field(String.class, "mode", "Mode"),
+			field(boolean.class, "console", "Console"),
+			field(boolean.class, "nativeDialog", "Native"),
+			field(boolean.class, "selected", "Selected")
+		);
+		JAR_COPY = new Type(
+			"JarCopy", "Jar Copy", "Copy of the program to the temporary directory",
+			field(String.class, "source", "Source"),
+			field(String.class, "target", "Target"),
+			field(long.class, "bytes", "Size")
+		);
+		RELAUNCH = new Type(
+			"Relaunch", "Relaunch", "Run of the program from the temporary directory",
+			field(String.class, "target", "Target"),
+			field(int.class, "exitCode", "Exit Code")
+		);
+	}
+}
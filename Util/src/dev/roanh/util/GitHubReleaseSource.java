@@ -0,0 +1,83 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+
+/**
+ * Release source that uses the tags of a GitHub repository
+ * or of a mirror that implements the same API. Tags are read from at
+ * most {@value #MAX_PAGES} pages, pagination stops early once the host
+ * is rate limited or a page cannot be retrieved, in which case the
+ * latest version on the pages read so far is returned.
+ * @author Roan
+ */
+public class GitHubReleaseSource extends HttpReleaseSource{
+	/**
+	 * Maximum number of tag pages to request.
+	 */
+	private static final int MAX_PAGES = 50;
+	/**
+	 * The base URL of the API.
+	 */
+	private final String api;
+
+	/**
+	 * Constructs a new release source for the public GitHub API.
+	 */
+	public GitHubReleaseSource(){
+		this("https://api.github.com");
+	}
+
+	/**
+	 * Constructs a new release source for the given API.
+	 * @param api The base URL of a GitHub compatible API.
+	 */
+	public GitHubReleaseSource(String api){
+		this.api = api.endsWith("/") ? api.substring(0, api.length() - 1) : api;
+	}
+
+	@Override
+	protected String getURL(String user, String repository){
+		return api + "/repos/" + user + "/" + repository + "/tags?per_page=100";
+	}
+
+	@Override
+	protected HttpURLConnection openConnection(String url) throws IOException{
+		HttpURLConnection con = super.openConnection(url);
+		con.addRequestProperty("Accept", "application/vnd.github.v3+json");
+		return con;
+	}
+
+	@Override
+	protected VersionNumber read(HttpURLConnection con) throws IOException{
+		VersionNumber.Max latest = new VersionNumber.Max();
+		for(int page = 0; con != null && page < MAX_PAGES; page++){
+			try(InputStream in = con.getInputStream()){
+				TagParser.parse(in, latest);
+			}
+
+			String next = TagParser.getNextPage(con.getHeaderField("Link"));
+			con = next == null ? null : request(next);
+		}
+		return latest.get();
+	}
+}
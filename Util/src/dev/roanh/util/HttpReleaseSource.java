@@ -0,0 +1,242 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for release sources that retrieve releases over HTTP.
+ * Results are stored in the {@link VersionCache} and cached results
+ * are revalidated with conditional requests once they expire. The
+ * <code>X-RateLimit-Remaining</code>, <code>X-RateLimit-Reset</code>
+ * and <code>Retry-After</code> headers are tracked per host and while
+ * a host is rate limited no requests are made to it, instead the last
+ * cached result is returned if available.
+ * @author Roan
+ * @see VersionCache
+ */
+public abstract class HttpReleaseSource implements ReleaseSource{
+	/**
+	 * Connect and read timeout in milliseconds.
+	 */
+	private static final int TIMEOUT = 10000;
+	/**
+	 * The known rate limit state for each host.
+	 */
+	private static final Map<String, RateLimit> limits = new ConcurrentHashMap<>();
+
+	@Override
+	public VersionNumber getLatestVersion(String user, String repository) throws IOException{
+		String url = getURL(user, repository);
+		String host = new URL(url).getHost();
+
+		VersionCache.Entry cached = VersionCache.get(host, user, repository);
+		if(cached != null && cached.isFresh()){
+			return cached.version;
+		}
+
+		FlightEvent event = FlightEvent.begin(FlightEvent.VERSION_CHECK).set("host", host).set("user", user).set("repository", repository).set("status", -1);
+		try{
+			RateLimit limit = limits.computeIfAbsent(host, h->new RateLimit());
+			if(!limit.acquire()){
+				if(cached != null){
+					event.set("cached", true);
+					return cached.version;
+				}
+				throw new IOException("Rate limit exceeded for " + host);
+			}
+
+			HttpURLConnection con = openConnection(url);
+			if(cached != null && cached.etag != null){
+				con.addRequestProperty("If-None-Match", cached.etag);
+			}
+
+			if(cached != null && cached.modified != null){
+				con.addRequestProperty("If-Modified-Since", cached.modified);
+			}
+
+			int status = con.getResponseCode();
+			event.set("status", status).set("bytes", con.getContentLengthLong());
+			limit.update(con);
+			if(cached != null && status == HttpURLConnection.HTTP_NOT_MODIFIED){
+				event.set("cached", true);
+				VersionCache.put(host, user, repository, cached.revalidate());
+				return cached.version;
+			}else if(status != HttpURLConnection.HTTP_OK){
+				throw new IOException("Unexpected response code " + status + " for " + url);
+			}
+
+			String etag = con.getHeaderField("ETag");
+			String modified = con.getHeaderField("Last-Modified");
+			VersionNumber version = read(con);
+			VersionCache.put(host, user, repository, new VersionCache.Entry(version, etag, modified, System.currentTimeMillis()));
+			return version;
+		}finally{
+			event.commit();
+		}
+	}
+
+	@Override
+	public long getDelay(String user, String repository){
+		String host;
+		try{
+			host = new URL(getURL(user, repository)).getHost();
+		}catch(MalformedURLException e){
+			return 0L;
+		}
+
+		VersionCache.Entry cached = VersionCache.get(host, user, repository);
+		if(cached != null && cached.isFresh()){
+			return 0L;
+		}
+
+		RateLimit limit = limits.get(host);
+		return limit == null ? 0L : limit.getDelay();
+	}
+
+	/**
+	 * Makes an additional request to the given URL, subject to the rate
+	 * limit of its host. Subclasses that make additional requests should
+	 * use this so that the rate limit state is updated for every response.
+	 * @param url The URL to request.
+	 * @return The connection with the successful response or <code>null</code>
+	 *         if the host is rate limited or the response was not successful.
+	 * @throws IOException When an IOException occurs.
+	 */
+	protected final HttpURLConnection request(String url) throws IOException{
+		RateLimit limit = limits.computeIfAbsent(new URL(url).getHost(), h->new RateLimit());
+		if(!limit.acquire()){
+			return null;
+		}
+
+		HttpURLConnection con = openConnection(url);
+		int status = con.getResponseCode();
+		limit.update(con);
+		if(status != HttpURLConnection.HTTP_OK){
+			con.disconnect();
+			return null;
+		}
+
+		return con;
+	}
+
+	/**
+	 * Opens a new connection to the given URL.
+	 * @param url The URL to connect to.
+	 * @return The opened connection.
+	 * @throws IOException When an IOException occurs.
+	 */
+	protected HttpURLConnection openConnection(String url) throws IOException{
+		HttpURLConnection con = (HttpURLConnection)new URL(url).openConnection();
+		con.setRequestMethod("GET");
+		con.setConnectTimeout(TIMEOUT);
+		con.setReadTimeout(TIMEOUT);
+		return con;
+	}
+
+	/**
+	 * Gets the URL to request the releases of the given repository from.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository to check in.
+	 * @return The URL to request.
+	 */
+	protected abstract String getURL(String user, String repository);
+
+	/**
+	 * Reads the latest version from the given successful response.
+	 * @param con The connection with the response to read.
+	 * @return The latest version or <code>null</code>
+	 *         if no valid version was found.
+	 * @throws IOException When an IOException occurs.
+	 */
+	protected abstract VersionNumber read(HttpURLConnection con) throws IOException;
+
+	/**
+	 * Rate limit state of a single host.
+	 * @author Roan
+	 */
+	private static final class RateLimit{
+		/**
+		 * The number of requests that can still be made
+		 * before the reset time, -1 if unknown.
+		 */
+		private int remaining = -1;
+		/**
+		 * The time in milliseconds since the epoch at which the
+		 * remaining number of requests is reset.
+		 */
+		private long reset = 0L;
+
+		/**
+		 * Attempts to reserve a single request.
+		 * @return True if the request can be made,
+		 *         false if the host is rate limited.
+		 */
+		private synchronized boolean acquire(){
+			if(remaining < 0 || System.currentTimeMillis() >= reset){
+				remaining = -1;
+				return true;
+			}else if(remaining > 0){
+				remaining--;
+				return true;
+			}else{
+				return false;
+			}
+		}
+
+		/**
+		 * Gets the time until the next request can be made.
+		 * @return The time in milliseconds until the rate limit resets,
+		 *         or 0 if requests can currently be made.
+		 */
+		private synchronized long getDelay(){
+			return remaining == 0 ? Math.max(0L, reset - System.currentTimeMillis()) : 0L;
+		}
+
+		/**
+		 * Updates this rate limit with the headers of the given response.
+		 * @param con The connection to read the headers from.
+		 */
+		private synchronized void update(HttpURLConnection con){
+			try{
+				String retry = con.getHeaderField("Retry-After");
+				if(retry != null){
+					remaining = 0;
+					reset = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Long.parseLong(retry.trim()));
+					return;
+				}
+
+				String left = con.getHeaderField("X-RateLimit-Remaining");
+				String time = con.getHeaderField("X-RateLimit-Reset");
+				if(left != null && time != null){
+					remaining = Integer.parseInt(left.trim());
+					reset = TimeUnit.SECONDS.toMillis(Long.parseLong(time.trim()));
+				}
+			}catch(NumberFormatException ignore){
+				//Unknown format, requests are not limited
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+
+/**
+ * Release source for a generic HTTP endpoint that returns JSON.
+ * Every string value of the configured key anywhere in the response
+ * is considered a release and the highest valid version is returned.
+ * @author Roan
+ */
+public class JsonReleaseSource extends HttpReleaseSource{
+	/**
+	 * The URL template with <code>{user}</code> and
+	 * <code>{repository}</code> placeholders.
+	 */
+	private final String template;
+	/**
+	 * The JSON key holding the versions.
+	 */
+	private final String key;
+
+	/**
+	 * Constructs a new JSON release source that reads
+	 * versions from the <code>version</code> key.
+	 * @param template The URL to request, <code>{user}</code> and
+	 *        <code>{repository}</code> are replaced with the user
+	 *        and repository to check.
+	 */
+	public JsonReleaseSource(String template){
+		this(template, "version");
+	}
+
+	/**
+	 * Constructs a new JSON release source.
+	 * @param template The URL to request, <code>{user}</code> and
+	 *        <code>{repository}</code> are replaced with the user
+	 *        and repository to check.
+	 * @param key The JSON key holding the versions.
+	 */
+	public JsonReleaseSource(String template, String key){
+		this.template = template;
+		this.key = key;
+	}
+
+	@Override
+	protected String getURL(String user, String repository){
+		return template.replace("{user}", user).replace("{repository}", repository);
+	}
+
+	@Override
+	protected HttpURLConnection openConnection(String url) throws IOException{
+		HttpURLConnection con = super.openConnection(url);
+		con.addRequestProperty("Accept", "application/json");
+		return con;
+	}
+
+	@Override
+	protected VersionNumber read(HttpURLConnection con) throws IOException{
+		VersionNumber.Max latest = new VersionNumber.Max();
+		try(InputStream in = con.getInputStream()){
+			TagParser.parse(in, key, latest);
+		}
+		return latest.get();
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Release source that reads releases from the local file system.
+ * The configured path can either be a properties file that maps
+ * <code>user/repository</code> keys to the latest version, or a
+ * directory. In the latter case <code>&lt;dir&gt;/user/repository</code>
+ * is either a directory whose entry names are the releases, or a
+ * text file with one release per line. Pre-releases in a directory
+ * or text file are ignored, a version configured in a properties
+ * file is always used as is.
+ * @author Roan
+ */
+public class LocalReleaseSource implements ReleaseSource{
+	/**
+	 * The file or directory with release information.
+	 */
+	private final Path path;
+
+	/**
+	 * Constructs a new local release source.
+	 * @param path The file or directory with release information.
+	 */
+	public LocalReleaseSource(Path path){
+		this.path = path;
+	}
+
+	@Override
+	public VersionNumber getLatestVersion(String user, String repository) throws IOException{
+		if(!Files.isDirectory(path)){
+			return readProperties(user + "/" + repository);
+		}
+
+		Path releases = path.resolve(user).resolve(repository).normalize();
+		if(!releases.startsWith(path.normalize())){
+			return null;
+		}
+
+		VersionNumber.Max latest = new VersionNumber.Max();
+		if(Files.isDirectory(releases)){
+			try(DirectoryStream<Path> entries = Files.newDirectoryStream(releases)){
+				for(Path entry : entries){
+					offer(latest, entry.getFileName().toString());
+				}
+			}
+		}else if(Files.isRegularFile(releases)){
+			try(BufferedReader reader = Files.newBufferedReader(releases, StandardCharsets.UTF_8)){
+				String line;
+				while((line = reader.readLine()) != null){
+					offer(latest, line.trim());
+				}
+			}
+		}
+
+		return latest.get();
+	}
+
+	/**
+	 * Reads the version for the given key from the properties file.
+	 * @param key The key of the repository.
+	 * @return The version for the given key or <code>null</code>
+	 *         if no valid version was found.
+	 * @throws IOException When an IOException occurs.
+	 */
+	private VersionNumber readProperties(String key) throws IOException{
+		try(InputStream in = Files.newInputStream(path)){
+			Properties data = new Properties();
+			data.load(in);
+
+			VersionNumber.Max latest = new VersionNumber.Max(true);
+			offer(latest, data.getProperty(key, ""));
+			return latest.get();
+		}
+	}
+
+	/**
+	 * Offers the given release to the given tracker
+	 * if it is a valid version number.
+	 * @param latest The tracker to offer to.
+	 * @param release The release to offer.
+	 */
+	private static final void offer(VersionNumber.Max latest, String release){
+		byte[] data = release.getBytes(StandardCharsets.UTF_8);
+		latest.onTag(data, 0, data.length);
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+
+/**
+ * Release source that reads the <code>maven-metadata.xml</code> file of
+ * an artifact in a Maven repository. For this source the user is the
+ * group ID of the artifact and the repository is the artifact ID.
+ * @author Roan
+ */
+public class MavenReleaseSource extends HttpReleaseSource{
+	/**
+	 * The base URL of the Maven repository.
+	 */
+	private final String url;
+
+	/**
+	 * Constructs a new release source for Maven Central.
+	 */
+	public MavenReleaseSource(){
+		this("https://repo1.maven.org/maven2");
+	}
+
+	/**
+	 * Constructs a new release source for the given Maven repository.
+	 * @param url The base URL of the Maven repository.
+	 */
+	public MavenReleaseSource(String url){
+		this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+	}
+
+	@Override
+	protected String getURL(String group, String artifact){
+		return url + "/" + group.replace('.', '/') + "/" + artifact + "/maven-metadata.xml";
+	}
+
+	@Override
+	protected VersionNumber read(HttpURLConnection con) throws IOException{
+		VersionNumber.Max latest = new VersionNumber.Max();
+		try(InputStream in = con.getInputStream()){
+			TagParser.parseXml(in, "version", latest);
+		}
+		return latest.get();
+	}
+}
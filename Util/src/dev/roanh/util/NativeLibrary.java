@@ -0,0 +1,206 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Extracts and loads native libraries bundled as resources. Libraries are
+ * extracted to the temporary directory under a name derived from the SHA-256
+ * hash of their content, so every build shares a single copy per distinct
+ * library. A copy is only reused after its content was verified against the
+ * hash in its name and new copies are first written to a temporary file that
+ * is then atomically moved in place, so concurrently starting programs never
+ * observe or load a partially written library.
+ * @author Roan
+ */
+final class NativeLibrary{
+	/**
+	 * Prefix for the names of extracted libraries.
+	 */
+	private static final String PREFIX = "RoanH-Util-";
+	/**
+	 * Characters used to hex encode hashes.
+	 */
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private NativeLibrary(){
+	}
+
+	/**
+	 * Extracts and loads the given native library.
+	 * @param resource The resource path of the library.
+	 * @param arch The architecture the library was built for.
+	 * @return True if the library was loaded, false if the library
+	 *         does not exist or could not be loaded.
+	 */
+	static final boolean load(String resource, String arch){
+		FlightEvent event = FlightEvent.begin(FlightEvent.NATIVE_LOAD);
+		boolean loaded = false;
+		try{
+			URL url = ClassLoader.getSystemResource(resource);
+			if(url != null){
+				Path lib = extract(url, arch, event);
+				System.load(lib.toAbsolutePath().toString());
+				loaded = true;
+			}
+		}catch(IOException | UnsatisfiedLinkError ignore){
+			//Native library not available
+		}
+		event.set("loaded", loaded).commit();
+		return loaded;
+	}
+
+	/**
+	 * Extracts the given native library to the temporary directory unless
+	 * an intact copy is already present.
+	 * @param url The URL of the library resource.
+	 * @param arch The architecture the library was built for.
+	 * @param event The flight event to record extraction details to.
+	 * @return The path to the extracted library.
+	 * @throws IOException When an IOException occurs.
+	 */
+	private static final Path extract(URL url, String arch, FlightEvent event) throws IOException{
+		ByteBuffer data = read(url);
+		event.set("bytes", (long)data.remaining());
+
+		String hash = hash(data);
+		Path dir = Paths.get(System.getProperty("java.io.tmpdir"));
+		Path lib = dir.resolve(PREFIX + arch + "-" + hash + ".dll");
+		event.set("path", lib.toString());
+		if(verify(lib, hash)){
+			return lib;
+		}
+
+		event.set("extracted", true);
+		Path tmp = Files.createTempFile(dir, PREFIX, ".tmp");
+		try{
+			try(FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+				while(data.hasRemaining()){
+					out.write(data);
+				}
+				out.force(true);
+			}
+
+			try{
+				Files.move(tmp, lib, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}catch(AtomicMoveNotSupportedException e){
+				Files.move(tmp, lib, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}catch(IOException e){
+			//Another program may have extracted the library concurrently and still have it open
+			if(!verify(lib, hash)){
+				throw e;
+			}
+		}finally{
+			Files.deleteIfExists(tmp);
+		}
+
+		return lib;
+	}
+
+	/**
+	 * Reads the complete content of the given resource.
+	 * @param url The URL of the resource to read.
+	 * @return A buffer with the content of the resource.
+	 * @throws IOException When an IOException occurs.
+	 */
+	private static final ByteBuffer read(URL url) throws IOException{
+		URLConnection con = url.openConnection();
+		long size = con.getContentLengthLong();
+		try(InputStream in = con.getInputStream(); ReadableByteChannel channel = Channels.newChannel(in)){
+			ByteBuffer buffer = ByteBuffer.allocate(size > 0 && size < Integer.MAX_VALUE ? (int)size : 16 * 1024);
+			while(channel.read(buffer) != -1){
+				if(!buffer.hasRemaining()){
+					ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+					buffer.flip();
+					larger.put(buffer);
+					buffer = larger;
+				}
+			}
+			buffer.flip();
+			return buffer;
+		}
+	}
+
+	/**
+	 * Checks if the given file exists and has the given content hash.
+	 * @param file The file to check.
+	 * @param hash The expected SHA-256 hash of the file.
+	 * @return True if the file exists and is intact.
+	 */
+	private static final boolean verify(Path file, String hash){
+		if(!Files.isRegularFile(file)){
+			return false;
+		}
+
+		try(FileChannel in = FileChannel.open(file, StandardOpenOption.READ)){
+			ByteBuffer data = ByteBuffer.allocate((int)Math.min(in.size(), Integer.MAX_VALUE));
+			while(data.hasRemaining() && in.read(data) != -1){
+				//Read the complete file
+			}
+			data.flip();
+			return hash.equals(hash(data));
+		}catch(IOException ignore){
+			return false;
+		}
+	}
+
+	/**
+	 * Computes the hex encoded SHA-256 hash of the remaining content
+	 * of the given buffer without changing its position.
+	 * @param data The data to hash.
+	 * @return The hex encoded hash.
+	 */
+	private static final String hash(ByteBuffer data){
+		try{
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(data.duplicate());
+
+			byte[] hash = digest.digest();
+			char[] hex = new char[hash.length * 2];
+			for(int i = 0; i < hash.length; i++){
+				hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+				hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+			}
+			return new String(hex);
+		}catch(NoSuchAlgorithmException e){
+			//Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,367 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import dev.roanh.util.DirectoryWatcher.Registration;
+
+/**
+ * Index of the entry names of recently used directories used to complete
+ * partially typed paths. Each index is a sorted array of names, so all names
+ * with a given prefix are found with a binary search. The names of directories
+ * end with a separator. An index is built on the shared background executor
+ * when a directory is first completed in and is then kept up to date with the
+ * changes reported by the {@link DirectoryWatcher}, indices of directories that
+ * cannot be watched are periodically rebuilt instead. Reported changes are
+ * applied in batches on the shared background executor, so the watcher thread
+ * never accesses the file system or merges large indices. Only a limited number of
+ * indices is kept, the least recently used index is evicted first.
+ * @author Roan
+ */
+final class PathIndex{
+	/**
+	 * The maximum number of indexed directories.
+	 */
+	private static final int CACHE_SIZE = 16;
+	/**
+	 * The time in milliseconds after which the index of
+	 * a directory that cannot be watched is rebuilt.
+	 */
+	private static final long UNWATCHED_TTL = 5000;
+	/**
+	 * True if names are compared case insensitively.
+	 */
+	private static final boolean IGNORE_CASE = System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("windows");
+	/**
+	 * The order of the names in an index.
+	 */
+	private static final Comparator<String> ORDER = IGNORE_CASE ? String.CASE_INSENSITIVE_ORDER : Comparator.naturalOrder();
+	/**
+	 * The indices of recently used directories, least recently used first.
+	 */
+	private static final Map<Path, PathIndex> indices = new LinkedHashMap<Path, PathIndex>(16, 0.75F, true){
+		/**
+		 * Serial ID.
+		 */
+		private static final long serialVersionUID = -3120566935264389154L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, PathIndex> eldest){
+			if(size() > CACHE_SIZE){
+				eldest.getValue().close();
+				return true;
+			}
+			return false;
+		}
+	};
+	/**
+	 * The indexed directory.
+	 */
+	private final Path dir;
+	/**
+	 * Completes once the index was first built.
+	 */
+	private final CompletableFuture<PathIndex> ready = new CompletableFuture<>();
+	/**
+	 * The watch registration for the directory or
+	 * <code>null</code> if the directory is not watched.
+	 */
+	private final Registration registration;
+	/**
+	 * The sorted entry names, <code>null</code> if not built yet.
+	 */
+	private volatile String[] names = null;
+	/**
+	 * The time in milliseconds the index was last built.
+	 */
+	private volatile long built = 0L;
+	/**
+	 * True while the index is being built.
+	 */
+	private boolean building = false;
+	/**
+	 * True if the directory changed while the index was being built.
+	 */
+	private boolean dirty = false;
+	/**
+	 * Reported changes that were not applied to the index yet.
+	 */
+	private List<WatchEvent<?>> changes = new ArrayList<>();
+	/**
+	 * True while a task applying reported changes is running.
+	 */
+	private boolean applying = false;
+
+	/**
+	 * Constructs a new index for the given directory and starts building it.
+	 * @param dir The directory to index.
+	 */
+	private PathIndex(Path dir){
+		this.dir = dir;
+		registration = DirectoryWatcher.watchEvents(dir, (changed, events)->update(events), false);
+		rebuild();
+	}
+
+	/**
+	 * Gets the index for the given directory, building it in the
+	 * background if the directory is not indexed yet.
+	 * @param dir The directory to get the index for.
+	 * @return A future that completes with the index once it is built.
+	 */
+	static final CompletableFuture<PathIndex> get(Path dir){
+		Path key = dir.toAbsolutePath().normalize();
+		synchronized(indices){
+			PathIndex index = indices.get(key);
+			if(index == null || (index.registration != null && !index.registration.isActive())){
+				if(index != null){
+					index.close();
+				}
+				index = new PathIndex(key);
+				indices.put(key, index);
+			}else if(index.registration == null && index.names != null && System.currentTimeMillis() - index.built > UNWATCHED_TTL){
+				index.rebuild();
+			}
+			return index.ready;
+		}
+	}
+
+	/**
+	 * Finds the names in this index that start with the given prefix.
+	 * @param prefix The prefix to search for.
+	 * @param limit The maximum number of names to return.
+	 * @return The names starting with the prefix in sorted order,
+	 *         the names of directories end with a separator.
+	 */
+	List<String> complete(String prefix, int limit){
+		String[] data = names;
+		int idx = Arrays.binarySearch(data, prefix, ORDER);
+		if(idx < 0){
+			idx = -(idx + 1);
+		}
+
+		List<String> matches = new ArrayList<>(Math.min(limit, 16));
+		while(idx < data.length && matches.size() < limit && data[idx].regionMatches(IGNORE_CASE, 0, prefix, 0, prefix.length())){
+			matches.add(data[idx++]);
+		}
+		return matches;
+	}
+
+	/**
+	 * Gets the number of entries in this index.
+	 * @return The number of entries in the directory.
+	 */
+	int size(){
+		return names.length;
+	}
+
+	/**
+	 * Builds the index in the background.
+	 */
+	private void rebuild(){
+		synchronized(this){
+			if(building){
+				dirty = true;
+				return;
+			}
+			building = true;
+			dirty = false;
+		}
+
+		Scheduler.getExecutor().execute(()->{
+			List<String> entries = new ArrayList<>();
+			try(DirectoryStream<Path> stream = Files.newDirectoryStream(dir)){
+				for(Path path : stream){
+					entries.add(name(path));
+				}
+			}catch(IOException | DirectoryIteratorException | SecurityException e){
+				//Index whatever could be listed
+			}
+
+			String[] sorted = entries.toArray(new String[entries.size()]);
+			Arrays.sort(sorted, ORDER);
+
+			boolean again;
+			synchronized(this){
+				names = sorted;
+				built = System.currentTimeMillis();
+				building = false;
+				again = dirty;
+			}
+
+			ready.complete(this);
+			if(again){
+				rebuild();
+			}
+		});
+	}
+
+	/**
+	 * Queues the given changes to be applied to the index in the
+	 * background. Called from the watcher thread.
+	 * @param events The changes to the directory.
+	 */
+	private void update(List<WatchEvent<?>> events){
+		synchronized(this){
+			if(building){
+				dirty = true;
+				return;
+			}
+
+			changes.addAll(events);
+			if(applying){
+				return;
+			}
+			applying = true;
+		}
+
+		Scheduler.getExecutor().execute(this::apply);
+	}
+
+	/**
+	 * Applies all queued changes to the index until none are left. Only a
+	 * single task runs this at a time, so changes are applied in order.
+	 */
+	private void apply(){
+		while(true){
+			List<WatchEvent<?>> events;
+			synchronized(this){
+				if(changes.isEmpty()){
+					applying = false;
+					return;
+				}
+				events = changes;
+				changes = new ArrayList<>();
+			}
+
+			//Only the last change to each entry matters
+			Map<Path, Boolean> created = new HashMap<>();
+			for(WatchEvent<?> event : events){
+				if(event.kind() == StandardWatchEventKinds.OVERFLOW){
+					created = null;
+					break;
+				}else if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE || event.kind() == StandardWatchEventKinds.ENTRY_DELETE){
+					created.put((Path)event.context(), event.kind() == StandardWatchEventKinds.ENTRY_CREATE);
+				}
+			}
+
+			if(created == null){
+				rebuild();
+				continue;
+			}
+
+			List<String> added = new ArrayList<>();
+			String[] removed = new String[created.size() * 2];
+			int idx = 0;
+			for(Map.Entry<Path, Boolean> entry : created.entrySet()){
+				String name = entry.getKey().toString();
+				removed[idx++] = name;
+				removed[idx++] = name + File.separator;
+				if(entry.getValue()){
+					added.add(name(dir.resolve(entry.getKey())));
+				}
+			}
+
+			String[] additions = added.toArray(new String[added.size()]);
+			Arrays.sort(additions, ORDER);
+			Arrays.sort(removed, ORDER);
+			synchronized(this){
+				if(building){
+					dirty = true;
+				}else if(removed.length != 0){
+					names = merge(names, additions, removed);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops keeping this index up to date.
+	 */
+	private void close(){
+		if(registration != null){
+			registration.cancel();
+		}
+	}
+
+	/**
+	 * Merges the given changes into a sorted name array in a single pass.
+	 * @param names The current sorted names.
+	 * @param added The sorted names to add.
+	 * @param removed The sorted names to remove, these are
+	 *        removed before the added names are added.
+	 * @return A new sorted array with the changes applied.
+	 */
+	private static final String[] merge(String[] names, String[] added, String[] removed){
+		String[] result = new String[names.length + added.length];
+		int size = 0;
+		int add = 0;
+		int remove = 0;
+		for(String name : names){
+			while(remove < removed.length && ORDER.compare(removed[remove], name) < 0){
+				remove++;
+			}
+
+			if(remove < removed.length && removed[remove].equals(name)){
+				continue;
+			}
+
+			while(add < added.length && ORDER.compare(added[add], name) < 0){
+				result[size++] = added[add++];
+			}
+
+			if(add < added.length && ORDER.compare(added[add], name) == 0){
+				add++;
+			}
+			result[size++] = name;
+		}
+
+		while(add < added.length){
+			result[size++] = added[add++];
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Gets the indexed name for the given directory entry.
+	 * @param path The directory entry.
+	 * @return The name of the entry, followed by a
+	 *         separator if the entry is a directory.
+	 */
+	private static final String name(Path path){
+		String name = path.getFileName().toString();
+		return Files.isDirectory(path) ? name + File.separator : name;
+	}
+}
@@ -0,0 +1,541 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.IOError;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import dev.roanh.util.DirectoryWatcher.Registration;
+
+/**
+ * Checks the existence, type and permissions of paths on the shared
+ * background executor, so that callers such as dialogs on the event
+ * dispatch thread never block on an unresponsive file system for longer
+ * than a given deadline. Concurrent checks of the same path share a single
+ * file system access. File system roots for which a check exceeded its
+ * deadline are remembered as slow for a while, during which checks of paths
+ * on that root report the path as unreachable immediately without accessing
+ * the file system. At most two checks per root run at the same time, further
+ * checks wait for these to finish, so an unresponsive file system never ties
+ * up more than two threads of the shared executor. A root whose running
+ * checks make no progress is also remembered as slow.
+ * <p>
+ * Results can also be obtained through a process wide cache shared by all
+ * callers. The parent directories of cached paths are watched, so cached
+ * results are invalidated as soon as a directory changes. Results for paths
+ * in directories that cannot be watched are only cached very briefly.
+ * @author Roan
+ */
+final class PathValidator{
+	/**
+	 * The time in milliseconds a root is remembered as slow.
+	 */
+	private static final long SLOW_RETENTION = TimeUnit.SECONDS.toMillis(30);
+	/**
+	 * The time in milliseconds after which a check is considered slow.
+	 */
+	private static final long SLOW_THRESHOLD = 500;
+	/**
+	 * The maximum number of checks running at the same time for a single root.
+	 */
+	private static final int ROOT_PARALLELISM = 2;
+	/**
+	 * The time in milliseconds cached results are used for
+	 * paths in directories that cannot be watched.
+	 */
+	private static final long CACHE_TTL = 2000;
+	/**
+	 * The time in milliseconds cached results are used for paths in
+	 * watched directories if no change is reported for the directory.
+	 */
+	private static final long WATCHED_TTL = TimeUnit.SECONDS.toMillis(30);
+	/**
+	 * The maximum number of cached results.
+	 */
+	private static final int CACHE_SIZE = 4096;
+	/**
+	 * The maximum number of directories watched for the cache.
+	 */
+	private static final int WATCH_LIMIT = 256;
+	/**
+	 * Cached results by absolute path.
+	 */
+	private static final Map<Path, Cached> cache = new ConcurrentHashMap<>();
+	/**
+	 * The time in milliseconds each watched directory last changed.
+	 */
+	private static final Map<Path, Long> changed = new ConcurrentHashMap<>();
+	/**
+	 * Watch registrations for the parent directories of cached
+	 * paths, least recently used first.
+	 */
+	private static final Map<Path, Registration> watched = new LinkedHashMap<Path, Registration>(16, 0.75F, true){
+		/**
+		 * Serial ID.
+		 */
+		private static final long serialVersionUID = 2829151587497622549L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, Registration> eldest){
+			if(size() > WATCH_LIMIT){
+				eldest.getValue().cancel();
+				invalidate(eldest.getKey());
+				changed.remove(eldest.getKey());
+				return true;
+			}
+			return false;
+		}
+	};
+	/**
+	 * The checks currently in progress by absolute path.
+	 */
+	private static final Map<Path, CompletableFuture<Status>> pending = new ConcurrentHashMap<>();
+	/**
+	 * The time in milliseconds each slow root was last found to be slow.
+	 */
+	private static final Map<Path, Long> slowRoots = new ConcurrentHashMap<>();
+	/**
+	 * The checks running and waiting for each root.
+	 */
+	private static final Map<Path, RootQueue> roots = new ConcurrentHashMap<>();
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private PathValidator(){
+	}
+
+	/**
+	 * Checks the given path, waiting at most the given time for the result.
+	 * If the result is not available in time the root of the path is
+	 * remembered as slow and the path is reported as unreachable. While a
+	 * root is remembered as slow the path is not checked at all.
+	 * @param path The path to check.
+	 * @param timeout The maximum time to wait in milliseconds.
+	 * @return The status of the path.
+	 */
+	static final Status check(Path path, long timeout){
+		CompletableFuture<Status> future;
+		Path root;
+		try{
+			Path abs = path.toAbsolutePath();
+			root = abs.getRoot();
+			if(isSlow(root)){
+				return Status.UNREACHABLE;
+			}
+			future = submit(abs, root);
+		}catch(IOError | SecurityException e){
+			return Status.UNREACHABLE;
+		}
+
+		try{
+			return future.get(timeout, TimeUnit.MILLISECONDS);
+		}catch(TimeoutException e){
+			if(root != null){
+				slowRoots.put(root, System.currentTimeMillis());
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}catch(ExecutionException e){
+			//Checks do not throw exceptions
+		}
+		return Status.UNREACHABLE;
+	}
+
+	/**
+	 * Checks the given path in the background. While the root of
+	 * the path is remembered as slow the path is not checked at all.
+	 * @param path The path to check.
+	 * @return A future that completes with the status of the path.
+	 */
+	static final CompletableFuture<Status> check(Path path){
+		try{
+			Path abs = path.toAbsolutePath();
+			if(isSlow(abs.getRoot())){
+				return CompletableFuture.completedFuture(Status.UNREACHABLE);
+			}
+			return submit(abs, abs.getRoot()).thenApply(status->status);
+		}catch(IOError | SecurityException e){
+			return CompletableFuture.completedFuture(Status.UNREACHABLE);
+		}
+	}
+
+	/**
+	 * Gets the status of the given path from the shared cache, checking
+	 * the path in the background if no up to date result is cached. While
+	 * the root of the path is remembered as slow and no result is cached
+	 * the path is reported as unreachable without checking it.
+	 * @param path The path to get the status of.
+	 * @return A future that completes with the status of the path, this
+	 *         future is already completed if a cached result was used.
+	 */
+	static final CompletableFuture<Status> getStatus(Path path){
+		Path abs;
+		try{
+			abs = path.toAbsolutePath();
+		}catch(IOError | SecurityException e){
+			return CompletableFuture.completedFuture(Status.UNREACHABLE);
+		}
+
+		long now = System.currentTimeMillis();
+		Path parent = abs.getParent();
+		Cached cached = cache.get(abs);
+		if(cached != null && cached.isFresh(now, parent)){
+			return CompletableFuture.completedFuture(cached.status);
+		}else if(isSlow(abs.getRoot())){
+			return CompletableFuture.completedFuture(Status.UNREACHABLE);
+		}
+
+		boolean watching = parent != null && watch(parent);
+		return submit(abs, abs.getRoot()).thenApply(status->{
+			if(cache.size() >= CACHE_SIZE){
+				long time = System.currentTimeMillis();
+				cache.entrySet().removeIf(entry->!entry.getValue().isFresh(time, entry.getKey().getParent()));
+				if(cache.size() >= CACHE_SIZE){
+					cache.clear();
+				}
+			}
+			
+			//Unreachable results are not cached so recovered roots are noticed
+			Cached result = new Cached(status, now, watching);
+			if(status.type != Type.UNREACHABLE && result.isFresh(now, parent)){
+				cache.put(abs, result);
+			}
+			return status;
+		});
+	}
+
+	/**
+	 * Watches the given directory to invalidate cached results.
+	 * @param dir The directory to watch.
+	 * @return True if the directory is watched.
+	 */
+	private static final boolean watch(Path dir){
+		synchronized(watched){
+			Registration registration = watched.get(dir);
+			if(registration != null && registration.isActive()){
+				return true;
+			}
+
+			registration = DirectoryWatcher.watch(dir, PathValidator::invalidate, true);
+			if(registration != null){
+				watched.put(dir, registration);
+				return true;
+			}
+
+			watched.remove(dir);
+			return false;
+		}
+	}
+
+	/**
+	 * Invalidates all cached results for paths in the given directory.
+	 * @param dir The directory that changed.
+	 */
+	private static final void invalidate(Path dir){
+		changed.put(dir, System.currentTimeMillis());
+		cache.keySet().removeIf(path->dir.equals(path.getParent()));
+		pending.keySet().removeIf(path->dir.equals(path.getParent()));
+	}
+
+	/**
+	 * Checks if the given root was recently found to be slow.
+	 * @param root The root to check, possibly <code>null</code>.
+	 * @return True if the root is remembered as slow.
+	 */
+	private static final boolean isSlow(Path root){
+		if(root == null){
+			return false;
+		}
+
+		Long time = slowRoots.get(root);
+		if(time != null && System.currentTimeMillis() - time > SLOW_RETENTION){
+			slowRoots.remove(root, time);
+			return false;
+		}
+		return time != null;
+	}
+
+	/**
+	 * Starts checking the given path unless a check
+	 * of the same path is already in progress.
+	 * @param path The absolute path to check.
+	 * @param root The root of the path, possibly <code>null</code>.
+	 * @return A future that completes with the status of the path.
+	 */
+	private static final CompletableFuture<Status> submit(Path path, Path root){
+		CompletableFuture<Status> created = new CompletableFuture<>();
+		CompletableFuture<Status> existing = pending.putIfAbsent(path, created);
+		if(existing != null){
+			return existing;
+		}
+
+		boolean scheduled = schedule(root, ()->{
+			long start = System.currentTimeMillis();
+			Status status = stat(path);
+			if(root != null && System.currentTimeMillis() - start < SLOW_THRESHOLD){
+				slowRoots.remove(root);
+			}
+			pending.remove(path, created);
+			created.complete(status);
+		});
+
+		if(!scheduled){
+			pending.remove(path, created);
+			created.complete(Status.UNREACHABLE);
+		}
+		return created;
+	}
+
+	/**
+	 * Runs the given check on the shared executor once fewer than
+	 * {@value #ROOT_PARALLELISM} checks are running for its root. If
+	 * the running checks for the root made no progress for a while
+	 * the root is remembered as slow and the check is not run.
+	 * @param root The root of the checked path, possibly <code>null</code>.
+	 * @param task The check to run.
+	 * @return True if the check was scheduled, false if the root is slow.
+	 */
+	private static final boolean schedule(Path root, Runnable task){
+		if(root == null){
+			Scheduler.getExecutor().execute(task);
+			return true;
+		}
+
+		RootQueue queue = roots.computeIfAbsent(root, k->new RootQueue());
+		synchronized(queue){
+			long now = System.currentTimeMillis();
+			if(queue.running < ROOT_PARALLELISM){
+				queue.running++;
+				queue.progress = now;
+			}else if(now - queue.progress > SLOW_THRESHOLD){
+				slowRoots.put(root, now);
+				return false;
+			}else{
+				queue.waiting.add(task);
+				return true;
+			}
+		}
+
+		Scheduler.getExecutor().execute(()->queue.run(task));
+		return true;
+	}
+
+	/**
+	 * Reads the status of the given path from the file system.
+	 * @param path The path to check.
+	 * @return The status of the path.
+	 */
+	private static final Status stat(Path path){
+		try{
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			Type type = attrs.isDirectory() ? Type.DIRECTORY : (attrs.isRegularFile() ? Type.FILE : Type.OTHER);
+			return new Status(type, Files.isReadable(path), Files.isWritable(path));
+		}catch(NoSuchFileException e){
+			return Status.MISSING;
+		}catch(AccessDeniedException e){
+			return Status.DENIED;
+		}catch(IOException | RuntimeException e){
+			return Status.UNREACHABLE;
+		}
+	}
+
+	/**
+	 * The checks running and waiting for a single root.
+	 * @author Roan
+	 */
+	private static final class RootQueue{
+		/**
+		 * The checks waiting for a running check to finish.
+		 */
+		private final Queue<Runnable> waiting = new ArrayDeque<>();
+		/**
+		 * The number of checks running for the root.
+		 */
+		private int running = 0;
+		/**
+		 * The time in milliseconds a check for the root last started or finished.
+		 */
+		private long progress = 0L;
+
+		/**
+		 * Runs the given check followed by any waiting checks.
+		 * @param task The check to run first.
+		 */
+		private void run(Runnable task){
+			while(task != null){
+				try{
+					task.run();
+				}catch(RuntimeException e){
+					//Checks do not throw exceptions
+				}
+
+				synchronized(this){
+					progress = System.currentTimeMillis();
+					task = waiting.poll();
+					if(task == null){
+						running--;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A cached result.
+	 * @author Roan
+	 */
+	private static final class Cached{
+		/**
+		 * The cached status.
+		 */
+		private final Status status;
+		/**
+		 * The time in milliseconds the check for the status was requested.
+		 */
+		private final long time;
+		/**
+		 * True if the parent directory of the path is watched.
+		 */
+		private final boolean watched;
+
+		/**
+		 * Constructs a new cached result.
+		 * @param status The cached status.
+		 * @param time The time in milliseconds the check was requested.
+		 * @param watched True if the parent directory of the path is watched.
+		 */
+		private Cached(Status status, long time, boolean watched){
+			this.status = status;
+			this.time = time;
+			this.watched = watched;
+		}
+
+		/**
+		 * Checks if this result can still be used.
+		 * @param now The current time in milliseconds.
+		 * @param parent The parent directory of the path.
+		 * @return True if this result is still up to date.
+		 */
+		private boolean isFresh(long now, Path parent){
+			if(now - time >= (watched ? WATCHED_TTL : CACHE_TTL)){
+				return false;
+			}
+
+			Long change = parent == null ? null : changed.get(parent);
+			return change == null || change < time;
+		}
+	}
+
+	/**
+	 * The type of a checked path.
+	 * @author Roan
+	 */
+	static enum Type{
+		/**
+		 * The path is a regular file.
+		 */
+		FILE,
+		/**
+		 * The path is a directory.
+		 */
+		DIRECTORY,
+		/**
+		 * The path exists but is neither a regular file nor a directory.
+		 */
+		OTHER,
+		/**
+		 * Access to the path was denied, so it is unknown if it exists.
+		 */
+		DENIED,
+		/**
+		 * The path does not exist.
+		 */
+		MISSING,
+		/**
+		 * The file system containing the path could not be reached in time.
+		 */
+		UNREACHABLE
+	}
+
+	/**
+	 * The status of a checked path.
+	 * @author Roan
+	 */
+	static final class Status{
+		/**
+		 * Status of a path that does not exist.
+		 */
+		static final Status MISSING = new Status(Type.MISSING, false, false);
+		/**
+		 * Status of a path to which access was denied.
+		 */
+		static final Status DENIED = new Status(Type.DENIED, false, false);
+		/**
+		 * Status of a path that could not be reached in time.
+		 */
+		static final Status UNREACHABLE = new Status(Type.UNREACHABLE, false, false);
+		/**
+		 * The type of the path.
+		 */
+		final Type type;
+		/**
+		 * True if the path is readable.
+		 */
+		final boolean readable;
+		/**
+		 * True if the path is writable.
+		 */
+		final boolean writable;
+
+		/**
+		 * Constructs a new status.
+		 * @param type The type of the path.
+		 * @param readable True if the path is readable.
+		 * @param writable True if the path is writable.
+		 */
+		private Status(Type type, boolean readable, boolean writable){
+			this.type = type;
+			this.readable = readable;
+			this.writable = writable;
+		}
+
+		/**
+		 * Checks if the path is known to exist.
+		 * @return True if the path exists.
+		 */
+		boolean exists(){
+			return type == Type.FILE || type == Type.DIRECTORY || type == Type.OTHER;
+		}
+	}
+}
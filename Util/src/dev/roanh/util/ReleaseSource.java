@@ -0,0 +1,122 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Source that version checks retrieve the latest release from.
+ * The source used by {@link Util} can be set programmatically,
+ * with the {@value #PROPERTY} system property or by registering
+ * an implementation with the {@link java.util.ServiceLoader}.
+ * By default releases are retrieved from GitHub.
+ * <p>
+ * The system property accepts the following values:
+ * <ul>
+ * <li><code>github</code> or <code>github:&lt;api url&gt;</code>
+ * for the GitHub API or a compatible mirror.</li>
+ * <li><code>json:&lt;url&gt;</code> for a JSON endpoint, the URL can
+ * contain <code>{user}</code> and <code>{repository}</code> placeholders.</li>
+ * <li><code>maven</code> or <code>maven:&lt;repository url&gt;</code> for
+ * a Maven repository, the user is used as the group ID and the repository
+ * as the artifact ID.</li>
+ * <li><code>local:&lt;path&gt;</code> for a local file or directory.</li>
+ * <li><code>none</code> to disable version checks entirely.</li>
+ * <li>The fully qualified name of a class implementing this interface
+ * that has a public no-argument constructor.</li>
+ * </ul>
+ * @author Roan
+ * @see Util#setReleaseSource(ReleaseSource)
+ * @see GitHubReleaseSource
+ * @see JsonReleaseSource
+ * @see MavenReleaseSource
+ * @see LocalReleaseSource
+ */
+@FunctionalInterface
+public abstract interface ReleaseSource{
+	/**
+	 * The system property used to select the default release source.
+	 */
+	public static final String PROPERTY = "dev.roanh.util.releaseSource";
+
+	/**
+	 * Gets the latest release for the given repository.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository to check in.
+	 * @return The latest version or <code>null</code> if
+	 *         no valid release was found.
+	 * @throws IOException When an IOException occurs.
+	 */
+	public abstract VersionNumber getLatestVersion(String user, String repository) throws IOException;
+
+	/**
+	 * Gets the time until a version check for the given repository can
+	 * be made without running into a rate limit of this source. Sources
+	 * without rate limits always return 0.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository to check in.
+	 * @return The time in milliseconds until the repository can be checked.
+	 */
+	public default long getDelay(String user, String repository){
+		return 0L;
+	}
+
+	/**
+	 * Constructs a release source from the given specification. The
+	 * accepted formats are the same as for the {@value #PROPERTY}
+	 * system property.
+	 * @param spec The release source specification.
+	 * @return The release source for the given specification.
+	 * @throws IllegalArgumentException When the given specification is invalid.
+	 */
+	public static ReleaseSource fromSpecification(String spec) throws IllegalArgumentException{
+		int split = spec.indexOf(':');
+		String type = (split == -1 ? spec : spec.substring(0, split)).trim().toLowerCase(Locale.ROOT);
+		String arg = split == -1 ? null : spec.substring(split + 1).trim();
+
+		switch(type){
+		case "none":
+			return (user, repository)->null;
+		case "github":
+			return arg == null ? new GitHubReleaseSource() : new GitHubReleaseSource(arg);
+		case "maven":
+			return arg == null ? new MavenReleaseSource() : new MavenReleaseSource(arg);
+		case "json":
+			if(arg != null){
+				return new JsonReleaseSource(arg);
+			}
+			break;
+		case "local":
+			if(arg != null){
+				return new LocalReleaseSource(Paths.get(arg));
+			}
+			break;
+		default:
+			try{
+				return Class.forName(spec.trim()).asSubclass(ReleaseSource.class).getConstructor().newInstance();
+			}catch(ReflectiveOperationException | ClassCastException e){
+				throw new IllegalArgumentException("Invalid release source: " + spec, e);
+			}
+		}
+
+		throw new IllegalArgumentException("Missing argument for release source: " + spec);
+	}
+}
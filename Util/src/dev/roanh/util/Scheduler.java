@@ -0,0 +1,117 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executor for all background work done by this library.
+ * The executor has a bounded number of threads that are started
+ * on demand and shut down again when idle. When the runtime supports
+ * virtual threads these are used instead of platform threads. Delayed
+ * tasks are timed by a single timer thread and then handed to the
+ * shared executor.
+ * @author Roan
+ */
+final class Scheduler{
+	/**
+	 * The maximum number of tasks that run concurrently.
+	 */
+	private static final int PARALLELISM = Math.max(16, Runtime.getRuntime().availableProcessors());
+	/**
+	 * The factory used to create worker threads.
+	 */
+	private static final ThreadFactory factory = createThreadFactory();
+	/**
+	 * The shared executor.
+	 */
+	private static final ExecutorService executor;
+	/**
+	 * Timer used to delay tasks before they are passed to the executor.
+	 */
+	private static final ScheduledThreadPoolExecutor timer;
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private Scheduler(){
+	}
+
+	/**
+	 * Gets the shared executor for background tasks.
+	 * @return The shared executor.
+	 */
+	static final ExecutorService getExecutor(){
+		return executor;
+	}
+
+	/**
+	 * Schedules the given task to run on the shared executor after the given delay.
+	 * @param task The task to run.
+	 * @param delay The delay before running the task.
+	 * @param unit The unit of the given delay.
+	 * @return A future that can be used to cancel the task before it
+	 *         is passed to the executor.
+	 */
+	static final ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit){
+		return timer.schedule(()->executor.execute(task), delay, unit);
+	}
+
+	/**
+	 * Creates the factory for worker threads. Virtual threads
+	 * are used if the runtime supports them, otherwise daemon
+	 * platform threads are created.
+	 * @return The thread factory to use.
+	 */
+	private static final ThreadFactory createThreadFactory(){
+		try{
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+			virtual = builder.getMethod("name", String.class, long.class).invoke(virtual, "Util Worker ", 0L);
+			return (ThreadFactory)builder.getMethod("factory").invoke(virtual);
+		}catch(ReflectiveOperationException | RuntimeException e){
+			AtomicInteger id = new AtomicInteger();
+			return task->{
+				Thread thread = new Thread(task, "Util Worker " + id.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			};
+		}
+	}
+
+	static{
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+		pool.allowCoreThreadTimeOut(true);
+		executor = pool;
+
+		timer = new ScheduledThreadPoolExecutor(1, task->{
+			Thread thread = new Thread(task, "Util Timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.setRemoveOnCancelPolicy(true);
+	}
+}
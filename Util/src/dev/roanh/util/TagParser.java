@@ -0,0 +1,341 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Single pass streaming scanner for the tag listings returned by
+ * the GitHub API and similar version listings. The scanner works
+ * directly on the response bytes and reports the values of the
+ * requested key without constructing any strings. Whitespace and
+ * formatting of the response are irrelevant.
+ * @author Roan
+ */
+final class TagParser{
+	/**
+	 * Depth value indicating that keys at any depth are matched.
+	 */
+	private static final int ANY_DEPTH = -1;
+	/**
+	 * The bytes of the key whose values are reported.
+	 */
+	private final byte[] key;
+	/**
+	 * The nesting depth at which keys are matched.
+	 */
+	private final int keyDepth;
+	/**
+	 * Read buffer.
+	 */
+	private final byte[] buffer = new byte[8192];
+	/**
+	 * Buffer for the string currently being read.
+	 */
+	private byte[] token = new byte[64];
+	/**
+	 * Number of bytes in the token buffer.
+	 */
+	private int length;
+	/**
+	 * The current nesting depth of objects and arrays.
+	 */
+	private int depth;
+	/**
+	 * True if a string or element content is currently being read.
+	 */
+	private boolean string;
+	/**
+	 * True if the previous byte was an escape character.
+	 */
+	private boolean escape;
+	/**
+	 * True if the string being read is a value and not a key.
+	 */
+	private boolean value;
+	/**
+	 * True if the most recent key at the matched depth was the requested key.
+	 */
+	private boolean match;
+
+	/**
+	 * Constructs a new tag parser.
+	 * @param key The key whose values to report.
+	 * @param depth The nesting depth at which keys are
+	 *        matched or {@link #ANY_DEPTH}.
+	 */
+	private TagParser(String key, int depth){
+		this.key = key.getBytes(StandardCharsets.UTF_8);
+		keyDepth = depth;
+	}
+
+	/**
+	 * Parses the given GitHub tag listing and reports the
+	 * <code>name</code> of every tag object in the top
+	 * level array to the given handler.
+	 * @param in The stream to read the tag listing from.
+	 * @param handler The handler to pass tag names to.
+	 * @throws IOException When an IOException occurs.
+	 */
+	static final void parse(InputStream in, TagHandler handler) throws IOException{
+		new TagParser("name", 2).scan(in, handler);
+	}
+
+	/**
+	 * Parses the given JSON document and reports every string
+	 * value of the given key at any depth to the given handler.
+	 * @param in The stream to read the JSON document from.
+	 * @param key The key whose values to report.
+	 * @param handler The handler to pass the values to.
+	 * @throws IOException When an IOException occurs.
+	 */
+	static final void parse(InputStream in, String key, TagHandler handler) throws IOException{
+		new TagParser(key, ANY_DEPTH).scan(in, handler);
+	}
+
+	/**
+	 * Parses the given XML document and reports the text content
+	 * of every element with the given name to the given handler.
+	 * Leading and trailing whitespace of the content is ignored.
+	 * Elements with attributes or nested elements are not reported.
+	 * @param in The stream to read the XML document from.
+	 * @param element The name of the elements to report.
+	 * @param handler The handler to pass the element contents to.
+	 * @throws IOException When an IOException occurs.
+	 */
+	static final void parseXml(InputStream in, String element, TagHandler handler) throws IOException{
+		new TagParser("<" + element + ">", ANY_DEPTH).scanXml(in, handler);
+	}
+
+	/**
+	 * Extracts the link to the next page from the given
+	 * <code>Link</code> header value.
+	 * @param link The value of the <code>Link</code> header,
+	 *        can be <code>null</code>.
+	 * @return The link to the next page or <code>null</code>
+	 *         if there is no next page.
+	 */
+	static final String getNextPage(String link){
+		if(link == null){
+			return null;
+		}
+
+		int end = link.indexOf("rel=\"next\"");
+		if(end == -1){
+			return null;
+		}
+
+		int start = link.lastIndexOf('<', end);
+		end = link.lastIndexOf('>', end);
+		return (start == -1 || end < start) ? null : link.substring(start + 1, end);
+	}
+
+	/**
+	 * Scans the given tag listing.
+	 * @param in The stream to read the tag listing from.
+	 * @param handler The handler to pass tag names to.
+	 * @throws IOException When an IOException occurs.
+	 */
+	private void scan(InputStream in, TagHandler handler) throws IOException{
+		int read;
+		while((read = in.read(buffer)) != -1){
+			for(int i = 0; i < read; i++){
+				byte b = buffer[i];
+				if(string){
+					if(escape){
+						escape = false;
+						append(b);
+					}else if(b == '\\'){
+						escape = true;
+					}else if(b == '"'){
+						string = false;
+						endString(handler);
+					}else{
+						append(b);
+					}
+				}else{
+					switch(b){
+					case '"':
+						string = true;
+						length = 0;
+						break;
+					case '{':
+					case '[':
+						depth++;
+						value = false;
+						break;
+					case '}':
+					case ']':
+						depth--;
+						break;
+					case ':':
+						value = true;
+						break;
+					case ',':
+						value = false;
+						break;
+					default:
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scans the given XML document.
+	 * @param in The stream to read the document from.
+	 * @param handler The handler to pass element contents to.
+	 * @throws IOException When an IOException occurs.
+	 */
+	private void scanXml(InputStream in, TagHandler handler) throws IOException{
+		int matched = 0;
+		int read;
+		while((read = in.read(buffer)) != -1){
+			for(int i = 0; i < read; i++){
+				byte b = buffer[i];
+				if(string){
+					if(b == '<'){
+						string = false;
+						matched = 1;
+						endElement(handler);
+					}else{
+						store(b);
+					}
+				}else if(b == key[matched]){
+					matched++;
+					if(matched == key.length){
+						string = true;
+						length = 0;
+						matched = 0;
+					}
+				}else{
+					matched = b == '<' ? 1 : 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Handles the end of an XML element by passing
+	 * its trimmed content to the given handler.
+	 * @param handler The handler to pass element contents to.
+	 */
+	private void endElement(TagHandler handler){
+		int start = 0;
+		int end = length;
+		while(start < end && token[start] <= ' '){
+			start++;
+		}
+		while(end > start && token[end - 1] <= ' '){
+			end--;
+		}
+
+		if(start != end){
+			handler.onTag(token, start, end - start);
+		}
+	}
+
+	/**
+	 * Handles the end of a string.
+	 * @param handler The handler to pass tag names to.
+	 */
+	private void endString(TagHandler handler){
+		if(!isRelevant()){
+			return;
+		}
+
+		if(value){
+			if(match){
+				handler.onTag(token, 0, length);
+			}
+		}else{
+			match = isKey();
+		}
+	}
+
+	/**
+	 * Checks if the current string is the requested key.
+	 * @return True if the current string is the requested key.
+	 */
+	private boolean isKey(){
+		if(length != key.length){
+			return false;
+		}
+
+		for(int i = 0; i < length; i++){
+			if(token[i] != key[i]){
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks if strings at the current depth can be
+	 * keys or values that need to be reported.
+	 * @return True if the current depth is relevant.
+	 */
+	private boolean isRelevant(){
+		return keyDepth == ANY_DEPTH || depth == keyDepth;
+	}
+
+	/**
+	 * Appends a byte to the current string if the string
+	 * could be relevant, otherwise the byte is dropped.
+	 * @param b The byte to append.
+	 */
+	private void append(byte b){
+		if(isRelevant()){
+			store(b);
+		}
+	}
+
+	/**
+	 * Stores a byte at the end of the token buffer.
+	 * @param b The byte to store.
+	 */
+	private void store(byte b){
+		if(length == token.length){
+			token = Arrays.copyOf(token, length * 2);
+		}
+		token[length++] = b;
+	}
+
+	/**
+	 * Handler that receives the tag names found by the parser.
+	 * @author Roan
+	 */
+	@FunctionalInterface
+	static abstract interface TagHandler{
+
+		/**
+		 * Called when a tag name is found. The passed array is
+		 * reused by the parser and is only valid during the call.
+		 * @param data The array containing the UTF-8 encoded tag name.
+		 * @param offset The offset of the tag name in the array.
+		 * @param length The length of the tag name.
+		 */
+		public abstract void onTag(byte[] data, int offset, int length);
+	}
+}
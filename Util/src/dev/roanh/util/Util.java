@@ -18,34 +18,54 @@
  */
 package dev.roanh.util;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
 
 import javax.swing.JLabel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  * Class with various utility subroutines.
  * @author Roan
  */
 public final class Util{
+	/**
+	 * Cache of artifact versions by group and artifact ID,
+	 * empty if no version information was found. Declared
+	 * first as initialising {@link #VERSION} requires it.
+	 */
+	private static final Map<String, Optional<String>> artifactVersions = new ConcurrentHashMap<>();
 	/**
 	 * The current Util version as a string without the 'v' prefix.
 	 * If Util is built locally and not included as a release artifact
 	 * this field will likely be <code>null</code>.
+	 * @deprecated Initialising this field requires looking up the version
+	 *             when this class is first used, use {@link #getVersion()}
+	 *             instead which only looks up the version when requested.
 	 */
-	public static final String VERSION = readArtifactVersion("dev.roanh.util", "util");
+	@Deprecated
+	public static final String VERSION = getVersion();
 	/**
 	 * Version label format in italics.
 	 * @see #VERSION_FORMAT
@@ -56,6 +76,14 @@ public final class Util{
 	 * @see #VERSION_FORMAT_ITALICS
 	 */
 	private static final String VERSION_FORMAT = "<html><center>Version: %1$s, latest version: %2$s</center></html>";
+	/**
+	 * Version checks that are currently running by user and repository.
+	 */
+	private static final Map<String, CompletableFuture<Optional<VersionNumber>>> pendingChecks = new ConcurrentHashMap<>();
+	/**
+	 * The source to retrieve releases from, <code>null</code> if not determined yet.
+	 */
+	private static volatile ReleaseSource releaseSource = null;
 	
 	/**
 	 * Prevent instantiation.
@@ -63,6 +91,17 @@ public final class Util{
 	private Util(){
 	}
 	
+	/**
+	 * Gets the current Util version as a string without the 'v' prefix.
+	 * If Util is built locally and not included as a release artifact
+	 * this will likely be <code>null</code>. The version is only looked
+	 * up the first time this method is called.
+	 * @return The current Util version.
+	 */
+	public static final String getVersion(){
+		return VersionHolder.VERSION;
+	}
+	
 	/**
 	 * Gets a version label that automatically updates
 	 * with the latest version after some time. The
@@ -130,59 +169,189 @@ public final class Util{
 	 * @see #getVersionLabel(String, String)
 	 */
 	public static final JLabel getVersionLabel(String user, String repository, String currentVersion, String def, boolean italics, int alignment){
-		JLabel ver = new JLabel(String.format(italics ? VERSION_FORMAT_ITALICS : VERSION_FORMAT, currentVersion, "<i><font color=gray>loading</font></i>"), alignment);
-		checkVersion(user, repository, version->ver.setText(String.format(italics ? VERSION_FORMAT_ITALICS : VERSION_FORMAT, currentVersion, version.orElse(def))));
+		return createVersionLabel(user, repository, currentVersion, null, def, italics, alignment);
+	}
+	
+	/**
+	 * Gets a version label that automatically updates
+	 * with the latest version after some time. If the
+	 * latest version is newer than the current version
+	 * it is shown in bold.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository to check the version for.
+	 * @param currentVersion The current version of the software.
+	 * @param def Default version name to set if the most up to date
+	 *        version cannot be determined.
+	 * @param italics Whether or not to display the
+	 *        text in italics.
+	 * @param alignment The text alignment inside the label.
+	 * @return An automatically updating label with the
+	 *         latest version.
+	 * @see SwingConstants
+	 * @see #getVersionLabel(String, String)
+	 */
+	public static final JLabel getVersionLabel(String user, String repository, VersionNumber currentVersion, String def, boolean italics, int alignment){
+		return createVersionLabel(user, repository, "v" + currentVersion, currentVersion, def, italics, alignment);
+	}
+	
+	/**
+	 * Creates a version label that automatically updates
+	 * with the latest version after some time.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository to check the version for.
+	 * @param currentVersion The current version of the software to display.
+	 * @param current The current version of the software, if not <code>
+	 *        null</code> the latest version is shown in bold when it is newer.
+	 * @param def Default version name to set if the most up to date
+	 *        version cannot be determined.
+	 * @param italics Whether or not to display the
+	 *        text in italics.
+	 * @param alignment The text alignment inside the label.
+	 * @return An automatically updating label with the
+	 *         latest version.
+	 */
+	private static final JLabel createVersionLabel(String user, String repository, String currentVersion, VersionNumber current, String def, boolean italics, int alignment){
+		String format = italics ? VERSION_FORMAT_ITALICS : VERSION_FORMAT;
+		BiConsumer<JLabel, Optional<VersionNumber>> update = (label, version)->{
+			String latest = version.map(v->"v" + v).orElse(def);
+			if(current != null && version.isPresent() && version.get().isNewerThan(current)){
+				latest = "<b>" + latest + "</b>";
+			}
+			label.setText(String.format(format, currentVersion, latest));
+		};
+		
+		JLabel ver = new JLabel(String.format(format, currentVersion, "<i><font color=gray>loading</font></i>"), alignment);
+		checkVersionAsync(user, repository).thenAcceptAsync(version->update.accept(ver, version), SwingUtilities::invokeLater);
+		VersionRefresher.register(ver, user, repository, (label, version)->update.accept(label, Optional.of(version)));
 		return ver;
 	}
 	
+	/**
+	 * Sets the interval at which version labels refresh the latest version.
+	 * Only labels created after refreshing is enabled are refreshed. A single
+	 * timer drives all labels, labels that are not displayable are not refreshed
+	 * and failed checks are retried with an exponential backoff. Note that
+	 * results may still be served from the {@link VersionCache}.
+	 * @param interval The refresh interval, 0 to disable refreshing (default).
+	 * @param unit The unit of the given interval.
+	 * @throws IllegalArgumentException When the given interval is negative.
+	 * @see #getVersionLabel(String, String, String, String, boolean, int)
+	 */
+	public static final void setVersionRefreshInterval(long interval, TimeUnit unit) throws IllegalArgumentException{
+		if(interval < 0){
+			throw new IllegalArgumentException("Refresh interval cannot be negative.");
+		}
+		VersionRefresher.setInterval(unit.toMillis(interval));
+	}
+	
 	/**
 	 * Asynchronously checks the latest version releases in the given repository.
 	 * @param user The user that owns the repository.
 	 * @param repository The repository to check in.
 	 * @param callback The callback to pass the found latest version to
 	 *        one is has been determined.
+	 * @see #checkVersionAsync(String, String)
 	 */
 	public static final void checkVersion(String user, String repository, Consumer<Optional<String>> callback){
-		Thread thread = new Thread(()->callback.accept(Optional.ofNullable(checkVersion(user, repository))), "Version Checker");
-		thread.setDaemon(true);
-		thread.start();
+		checkVersionAsync(user, repository).thenAcceptAsync(version->callback.accept(version.map(v->"v" + v)), Scheduler.getExecutor());
+	}
+	
+	/**
+	 * Asynchronously checks the latest version releases in the given repository.
+	 * The check runs on a shared background executor and concurrent checks for
+	 * the same repository share a single request and result.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository to check in.
+	 * @return A future that completes with the latest version
+	 *         once it has been determined.
+	 * @see #getLatestVersion(String, String)
+	 */
+	public static final CompletableFuture<Optional<VersionNumber>> checkVersionAsync(String user, String repository){
+		String key = user + "/" + repository;
+		CompletableFuture<Optional<VersionNumber>> future = new CompletableFuture<>();
+		CompletableFuture<Optional<VersionNumber>> running = pendingChecks.putIfAbsent(key, future);
+		if(running != null){
+			return running;
+		}
+		
+		Scheduler.getExecutor().execute(()->{
+			try{
+				future.complete(Optional.ofNullable(getLatestVersion(user, repository)));
+			}finally{
+				pendingChecks.remove(key, future);
+			}
+		});
+		
+		return future;
+	}
+	
+	/**
+	 * Checks the latest version of all the given repositories concurrently.
+	 * At most 8 repositories are checked at the same time.
+	 * @param repositories The repositories to check in the form
+	 *        <code>user/repository</code>.
+	 * @param callback The callback to pass the latest version of each
+	 *        repository to as soon as it has been determined.
+	 * @return A future that completes once all repositories were checked.
+	 * @see #checkVersions(Collection, int, BiConsumer)
+	 */
+	public static final CompletableFuture<Void> checkVersions(Collection<String> repositories, BiConsumer<String, Optional<VersionNumber>> callback){
+		return checkVersions(repositories, 8, callback);
+	}
+	
+	/**
+	 * Checks the latest version of all the given repositories concurrently.
+	 * When the release source reports that it is rate limited, checks are
+	 * deferred until the limit resets if this happens within a minute.
+	 * Otherwise the release source is queried anyway, which may
+	 * produce a cached or empty result.
+	 * @param repositories The repositories to check in the form
+	 *        <code>user/repository</code>.
+	 * @param parallelism The maximum number of repositories to check at the same time.
+	 * @param callback The callback to pass the latest version of each
+	 *        repository to as soon as it has been determined.
+	 * @return A future that completes once all repositories were checked.
+	 * @throws IllegalArgumentException When the given parallelism is less than 1.
+	 * @see ReleaseSource#getDelay(String, String)
+	 */
+	public static final CompletableFuture<Void> checkVersions(Collection<String> repositories, int parallelism, BiConsumer<String, Optional<VersionNumber>> callback) throws IllegalArgumentException{
+		if(parallelism < 1){
+			throw new IllegalArgumentException("Parallelism has to be at least 1.");
+		}
+		
+		BatchCheck batch = new BatchCheck(repositories, callback);
+		for(int i = 0; i < parallelism; i++){
+			batch.next();
+		}
+		return batch.done;
 	}
 	
 	/**
 	 * Gets the latest version releases in the given repository.
 	 * @param user The user that owns the repository.
 	 * @param repository The repository to check in.
-	 * @return The latest version.
+	 * @return The latest version prefixed with a <code>v</code>.
+	 * @see #getLatestVersion(String, String)
 	 */
 	public static final String checkVersion(String user, String repository){
+		VersionNumber version = getLatestVersion(user, repository);
+		return version == null ? null : ("v" + version);
+	}
+	
+	/**
+	 * Gets the latest version releases in the given repository using
+	 * the configured release source. Depending on the source results
+	 * may be cached, see {@link HttpReleaseSource}.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository to check in.
+	 * @return The latest version or <code>null</code> if
+	 *         the latest version could not be determined.
+	 * @see #getReleaseSource()
+	 * @see VersionNumber
+	 */
+	public static final VersionNumber getLatestVersion(String user, String repository){
 		try{
-			HttpURLConnection con = (HttpURLConnection)new URL("https://api.github.com/repos/" + user + "/" + repository + "/tags").openConnection();
-			con.setRequestMethod("GET");
-			con.addRequestProperty("Accept", "application/vnd.github.v3+json");
-			con.setConnectTimeout(10000);
-			
-			try(BufferedReader reader = new BufferedReader(new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8))){
-				String line = reader.readLine();
-				if(line == null){
-					return null;
-				}
-				
-				String[] versions = line.split("\"name\":\"v");
-				int major = 1;
-				int minor = 0;
-				for(int i = 1; i < versions.length; i++){
-					String[] tmp = versions[i].split("\",\"")[0].split("\\.");
-					int num = Integer.parseInt(tmp[0]);
-					
-					if(num > major){
-						major = num;
-						minor = Integer.parseInt(tmp[1]);
-					}else if(num == major){
-						minor = Math.max(minor, Integer.parseInt(tmp[1]));
-					}
-				}
-				return "v" + major + "." + minor;
-			}
+			return getReleaseSource().getLatestVersion(user, repository);
 		}catch(Exception e){
 			return null;
 			//No Internet access or something else is wrong,
@@ -190,6 +359,61 @@ public final class Util{
 		}
 	}
 	
+	/**
+	 * Sets the source to retrieve releases from for version checks.
+	 * @param source The release source to use, if <code>null</code>
+	 *        the default source is restored.
+	 * @see ReleaseSource
+	 */
+	public static final void setReleaseSource(ReleaseSource source){
+		releaseSource = source;
+	}
+	
+	/**
+	 * Gets the source releases are retrieved from for version checks.
+	 * If no source was set explicitly the source is determined from the
+	 * {@value ReleaseSource#PROPERTY} system property, then from the
+	 * release sources registered with the {@link ServiceLoader}, and
+	 * otherwise releases are retrieved from GitHub.
+	 * @return The release source used for version checks.
+	 * @see ReleaseSource
+	 */
+	public static final ReleaseSource getReleaseSource(){
+		ReleaseSource source = releaseSource;
+		if(source == null){
+			source = findReleaseSource();
+			releaseSource = source;
+		}
+		return source;
+	}
+	
+	/**
+	 * Determines the default release source.
+	 * @return The default release source.
+	 * @see #getReleaseSource()
+	 */
+	private static final ReleaseSource findReleaseSource(){
+		String spec = System.getProperty(ReleaseSource.PROPERTY);
+		if(spec != null){
+			try{
+				return ReleaseSource.fromSpecification(spec);
+			}catch(IllegalArgumentException ignore){
+				//Fall back to the other sources
+			}
+		}
+		
+		try{
+			Iterator<ReleaseSource> sources = ServiceLoader.load(ReleaseSource.class).iterator();
+			if(sources.hasNext()){
+				return sources.next();
+			}
+		}catch(ServiceConfigurationError ignore){
+			//Fall back to GitHub
+		}
+		
+		return new GitHubReleaseSource();
+	}
+	
 	/**
 	 * Sets the program look and feel to the default
 	 * for the operating system the program is running on.
@@ -203,33 +427,219 @@ public final class Util{
 	
 	/**
 	 * Reads the <code>version</code> field from the given Maven artifact
-	 * included in the current jar(s).
+	 * included in the current jar(s) and parses it as a version number.
+	 * @param group The group ID for the artifact.
+	 * @param artifact The name of the artifact to get the version of.
+	 * @return The version of the given Maven artifact or <code>null</code>
+	 *         if no valid version information was found for the given artifact.
+	 * @see #readArtifactVersion(String, String)
+	 */
+	public static final VersionNumber readArtifactVersionNumber(String group, String artifact){
+		String version = readArtifactVersion(group, artifact);
+		try{
+			return version == null ? null : VersionNumber.parse(version);
+		}catch(IllegalArgumentException e){
+			return null;
+		}
+	}
+	
+	/**
+	 * Reads the version of the given Maven artifact included in the current
+	 * jar(s). The version is read from the <code>pom.properties</code> file
+	 * of the artifact using the {@linkplain ArtifactIndex#getDefault() default
+	 * artifact index} if present, then from the <code>Implementation-Version</code>
+	 * of the manifest of the jar containing the artifact if its <code>
+	 * Implementation-Title</code> matches the artifact, and finally from the
+	 * <code>pom.xml</code> file of the artifact. Results are cached.
 	 * @param group The group ID for the artifact.
 	 * @param artifact The name of the artifact to get the version of.
 	 * @return The version field of the given Maven artifact or <code>
 	 *         null</code> if no version information was found for the
 	 *         given artifact.
+	 * @see ArtifactIndex
 	 */
 	public static final String readArtifactVersion(String group, String artifact){
-		try(InputStream pom = ClassLoader.getSystemResourceAsStream("META-INF/maven/" + group + "/" + artifact + "/pom.xml")){
-			if(pom == null){
+		return artifactVersions.computeIfAbsent(group + ":" + artifact, key->Optional.ofNullable(findArtifactVersion(group, artifact))).orElse(null);
+	}
+	
+	/**
+	 * Looks up the version of the given Maven artifact.
+	 * @param group The group ID for the artifact.
+	 * @param artifact The name of the artifact to get the version of.
+	 * @return The version of the given artifact or <code>null</code>
+	 *         if no version information was found.
+	 * @see #readArtifactVersion(String, String)
+	 */
+	private static final String findArtifactVersion(String group, String artifact){
+		String version = ArtifactIndex.getDefault().getVersion(group, artifact);
+		if(version != null){
+			return version;
+		}
+		
+		String path = "META-INF/maven/" + group + "/" + artifact + "/pom.xml";
+		URL pom = ClassLoader.getSystemResource(path);
+		if(pom == null){
+			return null;
+		}
+		
+		String url = pom.toString();
+		if(url.endsWith(path)){
+			try(InputStream in = new URL(url.substring(0, url.length() - path.length()) + "META-INF/MANIFEST.MF").openStream()){
+				Attributes attributes = new Manifest(in).getMainAttributes();
+				String implementation = attributes.getValue(Attributes.Name.IMPLEMENTATION_VERSION);
+				if(implementation != null && artifact.equalsIgnoreCase(attributes.getValue(Attributes.Name.IMPLEMENTATION_TITLE))){
+					return implementation.trim();
+				}
+			}catch(IOException ignore){
+				//Try the pom file
+			}
+		}
+		
+		return readPomVersion(pom);
+	}
+	
+	/**
+	 * Reads the project version from the given <code>pom.xml</code> file.
+	 * The file is read as a stream up to the version element only.
+	 * @param pom The pom file to read.
+	 * @return The project version or <code>null</code> if
+	 *         no version information was found.
+	 */
+	private static final String readPomVersion(URL pom){
+		try(InputStream in = pom.openStream()){
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			XMLStreamReader reader = factory.createXMLStreamReader(in);
+			try{
+				int depth = 0;
+				while(reader.hasNext()){
+					int event = reader.next();
+					if(event == XMLStreamConstants.START_ELEMENT){
+						if(depth == 1 && reader.getLocalName().equals("version")){
+							return reader.getElementText().trim();
+						}
+						depth++;
+					}else if(event == XMLStreamConstants.END_ELEMENT){
+						depth--;
+					}
+				}
 				return null;
+			}finally{
+				reader.close();
+			}
+		}catch(Exception e){
+			return null;
+		}
+	}
+	
+	/**
+	 * State of a batch of version checks. Each completed
+	 * check starts the next check until all repositories
+	 * have been checked.
+	 * @author Roan
+	 */
+	private static final class BatchCheck{
+		/**
+		 * Maximum time in milliseconds a check is deferred
+		 * waiting for a rate limit to reset.
+		 */
+		private static final long MAX_DEFER = TimeUnit.MINUTES.toMillis(1);
+		/**
+		 * The repositories that still need to be checked.
+		 */
+		private final Iterator<String> queue;
+		/**
+		 * The number of checks that have not completed yet.
+		 */
+		private final AtomicInteger remaining;
+		/**
+		 * The callback to pass results to.
+		 */
+		private final BiConsumer<String, Optional<VersionNumber>> callback;
+		/**
+		 * Future completed once all checks are done.
+		 */
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+		
+		/**
+		 * Constructs a new batch check.
+		 * @param repositories The repositories to check.
+		 * @param callback The callback to pass results to.
+		 */
+		private BatchCheck(Collection<String> repositories, BiConsumer<String, Optional<VersionNumber>> callback){
+			queue = new ArrayList<>(repositories).iterator();
+			remaining = new AtomicInteger(repositories.size());
+			this.callback = callback;
+			if(repositories.isEmpty()){
+				done.complete(null);
+			}
+		}
+		
+		/**
+		 * Starts the next check if there are repositories left.
+		 */
+		private void next(){
+			String key;
+			synchronized(queue){
+				if(!queue.hasNext()){
+					return;
+				}
+				key = queue.next();
 			}
 			
-			DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-			docFactory.setIgnoringElementContentWhitespace(true);
+			int split = key.indexOf('/');
+			if(split == -1){
+				complete(key, Optional.empty());
+				return;
+			}
 			
-			NodeList data = docFactory.newDocumentBuilder().parse(pom).getElementsByTagName("project").item(0).getChildNodes();
-			for(int i = 0; i < data.getLength(); i++){
-				Node node = data.item(i);
-				if(node.getNodeName().equals("version")){
-					return node.getTextContent();
+			String user = key.substring(0, split);
+			String repository = key.substring(split + 1);
+			long delay = getReleaseSource().getDelay(user, repository);
+			if(delay > 0 && delay <= MAX_DEFER){
+				Scheduler.schedule(()->check(key, user, repository), delay, TimeUnit.MILLISECONDS);
+			}else{
+				check(key, user, repository);
+			}
+		}
+		
+		/**
+		 * Checks the given repository.
+		 * @param key The repository key as passed to the batch.
+		 * @param user The user that owns the repository.
+		 * @param repository The repository to check in.
+		 */
+		private void check(String key, String user, String repository){
+			checkVersionAsync(user, repository).whenComplete((version, error)->complete(key, version == null ? Optional.empty() : version));
+		}
+		
+		/**
+		 * Reports the result of a single check and starts the next check.
+		 * @param key The repository key as passed to the batch.
+		 * @param version The latest version of the repository.
+		 */
+		private void complete(String key, Optional<VersionNumber> version){
+			try{
+				callback.accept(key, version);
+			}finally{
+				if(remaining.decrementAndGet() == 0){
+					done.complete(null);
+				}else{
+					next();
 				}
 			}
-			
-			return null;
-		}catch(Exception e){
-			return null;
 		}
 	}
+	
+	/**
+	 * Holder for the current Util version so that
+	 * it is only looked up when first requested.
+	 * @author Roan
+	 */
+	private static final class VersionHolder{
+		/**
+		 * The current Util version.
+		 */
+		private static final String VERSION = readArtifactVersion("dev.roanh.util", "util");
+	}
 }
@@ -0,0 +1,391 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache for the results of version checks. Entries
+ * are kept in memory and are also written to disk so that later
+ * launches of a program can reuse them. An entry that is younger
+ * than the configured time to live is returned without any network
+ * access, older entries are revalidated using the stored
+ * <code>ETag</code> and <code>Last-Modified</code> headers. Entries
+ * are grouped by the host of the release source they came from.
+ * @author Roan
+ * @see Util#getLatestVersion(String, String)
+ * @see HttpReleaseSource
+ */
+public final class VersionCache{
+	/**
+	 * In memory copy of all entries that were read or written.
+	 */
+	private static final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	/**
+	 * The directory the cache is stored in, <code>null</code>
+	 * if the cache should not be persisted to disk.
+	 */
+	private static volatile Path directory = getDefaultCacheDirectory();
+	/**
+	 * The time in milliseconds a cache entry remains valid
+	 * without being revalidated.
+	 */
+	private static volatile long ttl = TimeUnit.HOURS.toMillis(1);
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private VersionCache(){
+	}
+
+	/**
+	 * Sets the time a cached version remains valid. Within this time
+	 * a version check is answered from the cache without any network
+	 * access. A time of 0 means that every check is revalidated.
+	 * @param time The time to live.
+	 * @param unit The unit of the given time.
+	 * @throws IllegalArgumentException When the given time is negative.
+	 */
+	public static final void setTimeToLive(long time, TimeUnit unit) throws IllegalArgumentException{
+		if(time < 0){
+			throw new IllegalArgumentException("Time to live cannot be negative.");
+		}
+		ttl = unit.toMillis(time);
+	}
+
+	/**
+	 * Gets the time in milliseconds a cached version
+	 * remains valid without being revalidated.
+	 * @return The time to live in milliseconds.
+	 * @see #setTimeToLive(long, TimeUnit)
+	 */
+	public static final long getTimeToLive(){
+		return ttl;
+	}
+
+	/**
+	 * Sets the directory to persist the cache in. By default this is
+	 * a directory in the cache directory of the current user, which is
+	 * <code>%LOCALAPPDATA%</code> on Windows, <code>~/Library/Caches</code>
+	 * on macOS and <code>$XDG_CACHE_HOME</code> or <code>~/.cache</code>
+	 * on other systems.
+	 * @param dir The directory to store the cache in, if
+	 *        <code>null</code> the cache is only kept in memory.
+	 */
+	public static final void setCacheDirectory(Path dir){
+		directory = dir;
+	}
+
+	/**
+	 * Gets the directory the cache is persisted in.
+	 * @return The cache directory or <code>null</code>
+	 *         if the cache is only kept in memory.
+	 * @see #setCacheDirectory(Path)
+	 */
+	public static final Path getCacheDirectory(){
+		return directory;
+	}
+
+	/**
+	 * Gets the default directory to persist the cache in. This is always
+	 * a directory owned by the current user, so that other users cannot
+	 * change the cached versions.
+	 * @return The default cache directory or <code>null</code>
+	 *         if no per user directory could be determined.
+	 * @see #setCacheDirectory(Path)
+	 */
+	private static final Path getDefaultCacheDirectory(){
+		try{
+			String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+			String home = System.getProperty("user.home");
+			Path base;
+			if(os.contains("windows") && System.getenv("LOCALAPPDATA") != null){
+				base = Paths.get(System.getenv("LOCALAPPDATA"));
+			}else if(home == null || home.isEmpty()){
+				return null;
+			}else if(os.contains("mac")){
+				base = Paths.get(home, "Library", "Caches");
+			}else if(System.getenv("XDG_CACHE_HOME") != null && Paths.get(System.getenv("XDG_CACHE_HOME")).isAbsolute()){
+				base = Paths.get(System.getenv("XDG_CACHE_HOME"));
+			}else{
+				base = Paths.get(home, ".cache");
+			}
+			return base.resolve("RoanH-Util").resolve("versions");
+		}catch(InvalidPathException | SecurityException e){
+			return null;
+		}
+	}
+
+	/**
+	 * Removes all cached entries both from memory
+	 * and from the cache directory.
+	 */
+	public static final void clear(){
+		entries.clear();
+		Path dir = directory;
+		if(dir != null && Files.isDirectory(dir)){
+			try(Stream<Path> files = Files.walk(dir)){
+				files.sorted(Comparator.reverseOrder()).forEach(path->{
+					try{
+						Files.deleteIfExists(path);
+					}catch(IOException ignore){
+						//Stale entries are harmless
+					}
+				});
+			}catch(IOException ignore){
+				//Stale entries are harmless
+			}
+		}
+	}
+
+	/**
+	 * Gets the cached entry for the given repository.
+	 * @param host The host of the release source.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository.
+	 * @return The cached entry or <code>null</code>
+	 *         if no entry is available.
+	 */
+	static final Entry get(String host, String user, String repository){
+		String key = key(host, user, repository);
+		Entry entry = entries.get(key);
+		if(entry == null){
+			entry = read(host, user, repository);
+			if(entry != null){
+				Entry other = entries.putIfAbsent(key, entry);
+				if(other != null){
+					entry = other;
+				}
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores the given entry for the given repository.
+	 * @param host The host of the release source.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository.
+	 * @param entry The entry to store.
+	 */
+	static final void put(String host, String user, String repository, Entry entry){
+		entries.put(key(host, user, repository), entry);
+		write(host, user, repository, entry);
+	}
+
+	/**
+	 * Reads the persisted entry for the given repository.
+	 * @param host The host of the release source.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository.
+	 * @return The persisted entry or <code>null</code>
+	 *         if no valid entry was found.
+	 */
+	private static final Entry read(String host, String user, String repository){
+		Path file = file(host, user, repository);
+		if(file == null || !Files.exists(file)){
+			return null;
+		}
+
+		try(InputStream in = Files.newInputStream(file)){
+			Properties data = new Properties();
+			data.load(in);
+
+			String checked = data.getProperty("checked");
+			if(checked == null){
+				return null;
+			}
+
+			String version = data.getProperty("version");
+			return new Entry(version == null ? null : VersionNumber.parse(version), data.getProperty("etag"), data.getProperty("modified"), Long.parseLong(checked));
+		}catch(IOException | IllegalArgumentException e){
+			return null;
+		}
+	}
+
+	/**
+	 * Persists the given entry for the given repository. The entry is
+	 * first written to a temporary file that then replaces the old entry
+	 * so concurrently running programs never observe a partial entry.
+	 * @param host The host of the release source.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository.
+	 * @param entry The entry to write.
+	 */
+	private static final void write(String host, String user, String repository, Entry entry){
+		Path file = file(host, user, repository);
+		if(file == null){
+			return;
+		}
+
+		Properties data = new Properties();
+		data.setProperty("checked", String.valueOf(entry.checked));
+		setProperty(data, "version", entry.version == null ? null : entry.version.toString());
+		setProperty(data, "etag", entry.etag);
+		setProperty(data, "modified", entry.modified);
+
+		try{
+			Files.createDirectories(file.getParent());
+			Path tmp = Files.createTempFile(file.getParent(), null, null);
+			try{
+				try(OutputStream out = Files.newOutputStream(tmp)){
+					data.store(out, null);
+				}
+
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}finally{
+				Files.deleteIfExists(tmp);
+			}
+		}catch(IOException | UnsupportedOperationException ignore){
+			//The in memory copy is still valid
+		}
+	}
+
+	/**
+	 * Sets the given property if the given value is not <code>null</code>.
+	 * @param data The properties to update.
+	 * @param key The key of the property to set.
+	 * @param value The value to set, can be <code>null</code>.
+	 */
+	private static final void setProperty(Properties data, String key, String value){
+		if(value != null){
+			data.setProperty(key, value);
+		}
+	}
+
+	/**
+	 * Gets the file the entry for the given repository is stored in.
+	 * @param host The host of the release source.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository.
+	 * @return The file for the entry or <code>null</code> if the
+	 *         cache is not persisted or the names are not valid.
+	 */
+	private static final Path file(String host, String user, String repository){
+		Path dir = directory;
+		if(dir == null || !isValidName(host) || !isValidName(user) || !isValidName(repository)){
+			return null;
+		}
+
+		return dir.resolve(host).resolve(user).resolve(repository + ".properties");
+	}
+
+	/**
+	 * Checks if the given name can safely be used as a path component.
+	 * @param name The name to check.
+	 * @return True if the name is safe to use.
+	 */
+	private static final boolean isValidName(String name){
+		if(name.isEmpty() || name.equals(".") || name.equals("..")){
+			return false;
+		}
+
+		for(int i = 0; i < name.length(); i++){
+			char c = name.charAt(i);
+			if(!Character.isLetterOrDigit(c) && c != '-' && c != '_' && c != '.'){
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the in memory key for the given repository.
+	 * @param host The host of the release source.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository.
+	 * @return The key for the repository.
+	 */
+	private static final String key(String host, String user, String repository){
+		return host + "/" + user + "/" + repository;
+	}
+
+	/**
+	 * A single cached version check result.
+	 * @author Roan
+	 */
+	static final class Entry{
+		/**
+		 * The latest version, <code>null</code> if no version was found.
+		 */
+		final VersionNumber version;
+		/**
+		 * The <code>ETag</code> header of the response the version was
+		 * determined from, <code>null</code> if not available.
+		 */
+		final String etag;
+		/**
+		 * The <code>Last-Modified</code> header of the response the version
+		 * was determined from, <code>null</code> if not available.
+		 */
+		final String modified;
+		/**
+		 * The time in milliseconds since the epoch at
+		 * which this entry was last validated.
+		 */
+		final long checked;
+
+		/**
+		 * Constructs a new cache entry.
+		 * @param version The latest version.
+		 * @param etag The <code>ETag</code> header of the response.
+		 * @param modified The <code>Last-Modified</code> header of the response.
+		 * @param checked The time at which the entry was validated.
+		 */
+		Entry(VersionNumber version, String etag, String modified, long checked){
+			this.version = version;
+			this.etag = etag;
+			this.modified = modified;
+			this.checked = checked;
+		}
+
+		/**
+		 * Checks if this entry is still within the configured time to live.
+		 * @return True if this entry can be used without revalidation.
+		 * @see VersionCache#setTimeToLive(long, TimeUnit)
+		 */
+		boolean isFresh(){
+			long age = System.currentTimeMillis() - checked;
+			return age >= 0 && age < ttl;
+		}
+
+		/**
+		 * Creates a copy of this entry that was validated just now.
+		 * @return The revalidated entry.
+		 */
+		Entry revalidate(){
+			return new Entry(version, etag, modified, System.currentTimeMillis());
+		}
+	}
+}
@@ -0,0 +1,567 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Immutable parsed version number of the form
+ * <code>[v]major.minor.patch[-pre.release][+build]</code>. Any number of
+ * numeric components is supported. Versions are compared following the
+ * semantic versioning precedence rules, missing numeric components are
+ * treated as zero and build metadata is ignored for comparisons.
+ * @author Roan
+ * @see <a href="https://semver.org/">Semantic Versioning</a>
+ */
+public final class VersionNumber implements Comparable<VersionNumber>{
+	/**
+	 * Shared empty identifier array for versions without pre-release.
+	 */
+	private static final String[] NONE = new String[0];
+	/**
+	 * The numeric components of this version.
+	 */
+	private final int[] numbers;
+	/**
+	 * The pre-release identifiers of this version.
+	 */
+	private final String[] preRelease;
+	/**
+	 * The numeric value of each pre-release identifier
+	 * or -1 if the identifier is not numeric.
+	 */
+	private final int[] preReleaseValues;
+	/**
+	 * The build metadata of this version, <code>null</code> if absent.
+	 */
+	private final String build;
+	/**
+	 * The precomputed hash code of this version.
+	 */
+	private final int hash;
+
+	/**
+	 * Constructs a new version number.
+	 * @param numbers The numeric components.
+	 * @param preRelease The pre-release identifiers.
+	 * @param preReleaseValues The numeric values of the pre-release identifiers.
+	 * @param build The build metadata or <code>null</code>.
+	 */
+	private VersionNumber(int[] numbers, String[] preRelease, int[] preReleaseValues, String build){
+		this.numbers = numbers;
+		this.preRelease = preRelease;
+		this.preReleaseValues = preReleaseValues;
+		this.build = build;
+
+		int len = numbers.length;
+		while(len > 1 && numbers[len - 1] == 0){
+			len--;
+		}
+		int code = 1;
+		for(int i = 0; i < len; i++){
+			code = 31 * code + numbers[i];
+		}
+		for(int i = 0; i < preRelease.length; i++){
+			code = 31 * code + (preReleaseValues[i] >= 0 ? preReleaseValues[i] : preRelease[i].hashCode());
+		}
+		hash = code;
+	}
+
+	/**
+	 * Parses the given version string. A leading <code>v</code> is ignored.
+	 * @param version The version to parse.
+	 * @return The parsed version number.
+	 * @throws NullPointerException When the given version is <code>null</code>.
+	 * @throws IllegalArgumentException When the given string is not a valid version.
+	 */
+	public static final VersionNumber parse(String version) throws NullPointerException, IllegalArgumentException{
+		byte[] data = version.trim().getBytes(StandardCharsets.UTF_8);
+		VersionNumber parsed = parse(data, 0, data.length);
+		if(parsed == null){
+			throw new IllegalArgumentException("Invalid version number: " + version);
+		}
+		return parsed;
+	}
+
+	/**
+	 * Parses the version in the given byte range.
+	 * @param data The array containing the UTF-8 encoded version.
+	 * @param offset The offset of the version in the array.
+	 * @param length The length of the version.
+	 * @return The parsed version or <code>null</code> if the
+	 *         given range does not contain a valid version.
+	 */
+	static final VersionNumber parse(byte[] data, int offset, int length){
+		Parser parser = new Parser();
+		int end = offset + length;
+		int pos = parser.parseCore(data, offset, end);
+		return pos == -1 ? null : parser.finish(data, pos, end);
+	}
+
+	/**
+	 * Constructs a version number with the given numeric components.
+	 * @param numbers The numeric components, for example
+	 *        the major, minor and patch version.
+	 * @return The constructed version number.
+	 * @throws IllegalArgumentException When no components are given
+	 *         or when one of the components is negative.
+	 */
+	public static final VersionNumber of(int... numbers) throws IllegalArgumentException{
+		if(numbers.length == 0){
+			throw new IllegalArgumentException("A version needs at least one component.");
+		}
+
+		for(int num : numbers){
+			if(num < 0){
+				throw new IllegalArgumentException("Version components cannot be negative.");
+			}
+		}
+
+		return new VersionNumber(numbers.clone(), NONE, new int[0], null);
+	}
+
+	/**
+	 * Finds the highest version in the given collection.
+	 * @param versions The versions to search, <code>null</code>
+	 *        elements are ignored.
+	 * @return The highest version or <code>null</code> if
+	 *         no versions were given.
+	 */
+	public static final VersionNumber max(Iterable<VersionNumber> versions){
+		Max max = new Max();
+		for(VersionNumber version : versions){
+			if(version != null){
+				max.add(version);
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Gets the major version.
+	 * @return The major version.
+	 */
+	public int getMajor(){
+		return numbers[0];
+	}
+
+	/**
+	 * Gets the minor version.
+	 * @return The minor version, 0 if absent.
+	 */
+	public int getMinor(){
+		return getComponent(1);
+	}
+
+	/**
+	 * Gets the patch version.
+	 * @return The patch version, 0 if absent.
+	 */
+	public int getPatch(){
+		return getComponent(2);
+	}
+
+	/**
+	 * Gets a numeric component of this version.
+	 * @param index The index of the component, 0 for the major version.
+	 * @return The requested component, 0 if absent.
+	 */
+	public int getComponent(int index){
+		return index < numbers.length ? numbers[index] : 0;
+	}
+
+	/**
+	 * Gets the number of numeric components that were specified.
+	 * @return The number of numeric components.
+	 */
+	public int getComponentCount(){
+		return numbers.length;
+	}
+
+	/**
+	 * Checks if this is a pre-release version.
+	 * @return True if this version has pre-release identifiers.
+	 */
+	public boolean isPreRelease(){
+		return preRelease.length != 0;
+	}
+
+	/**
+	 * Gets the pre-release part of this version.
+	 * @return The pre-release part or <code>null</code> if absent.
+	 */
+	public String getPreRelease(){
+		return preRelease.length == 0 ? null : String.join(".", preRelease);
+	}
+
+	/**
+	 * Gets the build metadata of this version.
+	 * @return The build metadata or <code>null</code> if absent.
+	 */
+	public String getBuildMetadata(){
+		return build;
+	}
+
+	/**
+	 * Checks if this version is newer than the given version.
+	 * @param other The version to compare with.
+	 * @return True if this version has a higher precedence.
+	 */
+	public boolean isNewerThan(VersionNumber other){
+		return compareTo(other) > 0;
+	}
+
+	/**
+	 * Compares only the numeric components of this version
+	 * with the given numeric components.
+	 * @param other The numeric components to compare with.
+	 * @param count The number of valid entries in the given array.
+	 * @return A negative value, zero or a positive value if this version
+	 *         has lower, equal or higher numeric components respectively.
+	 */
+	private int compareNumbers(int[] other, int count){
+		int len = Math.max(numbers.length, count);
+		for(int i = 0; i < len; i++){
+			int cmp = Integer.compare(getComponent(i), i < count ? other[i] : 0);
+			if(cmp != 0){
+				return cmp;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public int compareTo(VersionNumber other){
+		int cmp = compareNumbers(other.numbers, other.numbers.length);
+		if(cmp != 0){
+			return cmp;
+		}
+
+		if(preRelease.length == 0){
+			return other.preRelease.length == 0 ? 0 : 1;
+		}else if(other.preRelease.length == 0){
+			return -1;
+		}
+
+		int len = Math.min(preRelease.length, other.preRelease.length);
+		for(int i = 0; i < len; i++){
+			int a = preReleaseValues[i];
+			int b = other.preReleaseValues[i];
+			if(a >= 0 && b >= 0){
+				cmp = Integer.compare(a, b);
+			}else if(a >= 0 || b >= 0){
+				cmp = a >= 0 ? -1 : 1;
+			}else{
+				cmp = preRelease[i].compareTo(other.preRelease[i]);
+			}
+
+			if(cmp != 0){
+				return cmp;
+			}
+		}
+
+		return Integer.compare(preRelease.length, other.preRelease.length);
+	}
+
+	@Override
+	public boolean equals(Object obj){
+		return obj instanceof VersionNumber && hash == obj.hashCode() && compareTo((VersionNumber)obj) == 0;
+	}
+
+	@Override
+	public int hashCode(){
+		return hash;
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder buffer = new StringBuilder();
+		for(int i = 0; i < numbers.length; i++){
+			if(i != 0){
+				buffer.append('.');
+			}
+			buffer.append(numbers[i]);
+		}
+
+		if(preRelease.length != 0){
+			buffer.append('-');
+			buffer.append(getPreRelease());
+		}
+
+		if(build != null){
+			buffer.append('+');
+			buffer.append(build);
+		}
+
+		return buffer.toString();
+	}
+
+	/**
+	 * Checks if the given byte is an ASCII digit.
+	 * @param b The byte to check.
+	 * @return True if the given byte is a digit.
+	 */
+	private static final boolean isDigit(byte b){
+		return b >= '0' && b <= '9';
+	}
+
+	/**
+	 * Checks if the given byte is valid in a pre-release or build identifier.
+	 * @param b The byte to check.
+	 * @return True if the given byte is valid in an identifier.
+	 */
+	private static final boolean isIdentifier(byte b){
+		return isDigit(b) || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '-';
+	}
+
+	/**
+	 * Reusable parser for version numbers in byte form. The numeric
+	 * components are parsed into a scratch array first so that
+	 * callers can reject versions before allocating anything.
+	 * @author Roan
+	 */
+	private static final class Parser{
+		/**
+		 * Scratch array with the parsed numeric components.
+		 */
+		private int[] numbers = new int[4];
+		/**
+		 * Number of valid entries in the numbers array.
+		 */
+		private int count;
+
+		/**
+		 * Parses the numeric components at the start of the given range.
+		 * @param data The array containing the version.
+		 * @param offset The offset of the version in the array.
+		 * @param end The end index of the version in the array.
+		 * @return The index directly after the numeric components or
+		 *         -1 if the range does not start with a valid version.
+		 */
+		private int parseCore(byte[] data, int offset, int end){
+			int i = offset;
+			if(i < end && (data[i] == 'v' || data[i] == 'V')){
+				i++;
+			}
+
+			count = 0;
+			while(true){
+				int start = i;
+				long value = 0;
+				while(i < end && isDigit(data[i])){
+					value = value * 10 + (data[i++] - '0');
+					if(value > Integer.MAX_VALUE){
+						return -1;
+					}
+				}
+
+				if(i == start){
+					return -1;
+				}
+
+				if(count == numbers.length){
+					numbers = Arrays.copyOf(numbers, count * 2);
+				}
+				numbers[count++] = (int)value;
+
+				if(i < end && data[i] == '.'){
+					i++;
+				}else{
+					return i;
+				}
+			}
+		}
+
+		/**
+		 * Parses the pre-release and build metadata following the numeric
+		 * components and constructs the final version number.
+		 * @param data The array containing the version.
+		 * @param pos The index directly after the numeric components.
+		 * @param end The end index of the version in the array.
+		 * @return The parsed version or <code>null</code> if the
+		 *         remainder of the version is invalid.
+		 */
+		private VersionNumber finish(byte[] data, int pos, int end){
+			String[] pre = NONE;
+			int[] values = new int[0];
+			String build = null;
+
+			if(pos < end && data[pos] == '-'){
+				int start = ++pos;
+				while(pos < end && data[pos] != '+'){
+					pos++;
+				}
+
+				pre = split(data, start, pos);
+				if(pre == null){
+					return null;
+				}
+
+				values = new int[pre.length];
+				for(int i = 0; i < pre.length; i++){
+					values[i] = numericValue(pre[i]);
+				}
+			}
+
+			if(pos < end && data[pos] == '+'){
+				int start = ++pos;
+				if(split(data, start, end) == null){
+					return null;
+				}
+				build = new String(data, start, end - start, StandardCharsets.US_ASCII);
+				pos = end;
+			}
+
+			return pos == end ? new VersionNumber(Arrays.copyOf(numbers, count), pre, values, build) : null;
+		}
+
+		/**
+		 * Splits the given range into dot separated identifiers.
+		 * @param data The array containing the identifiers.
+		 * @param start The start index of the identifiers.
+		 * @param end The end index of the identifiers.
+		 * @return The identifiers or <code>null</code> if any
+		 *         of the identifiers is empty or invalid.
+		 */
+		private static String[] split(byte[] data, int start, int end){
+			int parts = 1;
+			for(int i = start; i < end; i++){
+				if(data[i] == '.'){
+					parts++;
+				}else if(!isIdentifier(data[i])){
+					return null;
+				}
+			}
+
+			String[] identifiers = new String[parts];
+			int idx = 0;
+			int from = start;
+			for(int i = start; i <= end; i++){
+				if(i == end || data[i] == '.'){
+					if(i == from){
+						return null;
+					}
+
+					identifiers[idx++] = new String(data, from, i - from, StandardCharsets.US_ASCII);
+					from = i + 1;
+				}
+			}
+
+			return identifiers;
+		}
+
+		/**
+		 * Gets the numeric value of a pre-release identifier.
+		 * @param identifier The identifier.
+		 * @return The numeric value of the identifier or -1 if the
+		 *         identifier is not a number that fits in an integer.
+		 */
+		private static int numericValue(String identifier){
+			long value = 0;
+			for(int i = 0; i < identifier.length(); i++){
+				char c = identifier.charAt(i);
+				if(c < '0' || c > '9'){
+					return -1;
+				}
+
+				value = value * 10 + (c - '0');
+				if(value > Integer.MAX_VALUE){
+					return -1;
+				}
+			}
+			return (int)value;
+		}
+	}
+
+	/**
+	 * Tracker for the highest version in a large number of versions. When
+	 * used as a tag handler the versions are parsed directly from the raw
+	 * tag bytes and versions with lower numeric components than the current
+	 * maximum are rejected without allocating anything. Tags that are not
+	 * valid versions are ignored, as are pre-releases unless requested.
+	 * @author Roan
+	 */
+	static final class Max implements TagParser.TagHandler{
+		/**
+		 * Reused parser for tag names.
+		 */
+		private final Parser parser = new Parser();
+		/**
+		 * True if pre-release versions are considered.
+		 */
+		private final boolean preReleases;
+		/**
+		 * The highest version seen so far.
+		 */
+		private VersionNumber max = null;
+
+		/**
+		 * Constructs a new tracker that ignores pre-release versions.
+		 */
+		Max(){
+			this(false);
+		}
+
+		/**
+		 * Constructs a new tracker.
+		 * @param preReleases True to also consider pre-release versions.
+		 */
+		Max(boolean preReleases){
+			this.preReleases = preReleases;
+		}
+
+		@Override
+		public void onTag(byte[] data, int offset, int length){
+			int end = offset + length;
+			int pos = parser.parseCore(data, offset, end);
+			if(pos == -1 || (max != null && max.compareNumbers(parser.numbers, parser.count) > 0)){
+				return;
+			}
+
+			VersionNumber version = parser.finish(data, pos, end);
+			if(version != null){
+				add(version);
+			}
+		}
+
+		/**
+		 * Offers a new version to this tracker.
+		 * @param version The version to offer.
+		 */
+		void add(VersionNumber version){
+			if(version.isPreRelease() && !preReleases){
+				return;
+			}
+
+			if(max == null || version.compareTo(max) > 0){
+				max = version;
+			}
+		}
+
+		/**
+		 * Gets the highest version seen so far.
+		 * @return The highest version or <code>null</code>
+		 *         if no valid versions were seen.
+		 */
+		VersionNumber get(){
+			return max;
+		}
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * Util: General utilities for my public projects.
+ * Copyright (C) 2019  Roan Hofland (roan@roanh.dev).  All rights reserved.
+ * GitHub Repository: https://github.com/RoanH/Util
+ *
+ * Util is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Util is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.roanh.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Periodically refreshes the latest version shown by version labels.
+ * A single timer task drives all labels and is always scheduled for
+ * the earliest label that is due. Labels that are not displayable are
+ * not refreshed until they become displayable again and labels are
+ * only weakly referenced so that they are unregistered automatically
+ * once garbage collected. Failed checks are retried with an exponential
+ * backoff with jitter that never exceeds the refresh interval.
+ * @author Roan
+ * @see Util#setVersionRefreshInterval(long, TimeUnit)
+ */
+final class VersionRefresher{
+	/**
+	 * The delay in milliseconds before the first retry after a failed check.
+	 */
+	private static final long BASE_BACKOFF = TimeUnit.SECONDS.toMillis(30);
+	/**
+	 * The interval in milliseconds at which labels that are
+	 * not displayable are checked for being displayable again.
+	 */
+	private static final long SUSPEND_POLL = TimeUnit.SECONDS.toMillis(10);
+	/**
+	 * All registered labels, also used as the lock for all refresher state.
+	 */
+	private static final List<Registration> registrations = new ArrayList<>();
+	/**
+	 * Queue of registrations whose label was garbage collected.
+	 */
+	private static final ReferenceQueue<JLabel> collected = new ReferenceQueue<>();
+	/**
+	 * The refresh interval in milliseconds, 0 if refreshing is disabled.
+	 */
+	private static volatile long interval = 0L;
+	/**
+	 * The scheduled timer task, <code>null</code> if not scheduled.
+	 */
+	private static ScheduledFuture<?> task = null;
+
+	/**
+	 * Prevent instantiation.
+	 */
+	private VersionRefresher(){
+	}
+
+	/**
+	 * Sets the refresh interval.
+	 * @param millis The refresh interval in milliseconds,
+	 *        0 to disable refreshing.
+	 */
+	static final void setInterval(long millis){
+		interval = millis;
+		synchronized(registrations){
+			reschedule();
+		}
+	}
+
+	/**
+	 * Registers a label for periodic refreshing if refreshing is enabled.
+	 * @param label The label to refresh.
+	 * @param user The user that owns the repository.
+	 * @param repository The repository to check the version for.
+	 * @param updater Updates the label with a newly found latest version,
+	 *        this should not hold a reference to the label itself.
+	 */
+	static final void register(JLabel label, String user, String repository, BiConsumer<JLabel, VersionNumber> updater){
+		long millis = interval;
+		if(millis > 0){
+			synchronized(registrations){
+				registrations.add(new Registration(label, user, repository, updater, System.currentTimeMillis() + millis));
+				reschedule();
+			}
+		}
+	}
+
+	/**
+	 * Starts a refresh for all labels that are due.
+	 */
+	private static final void run(){
+		List<Registration> due = new ArrayList<>();
+		long now = System.currentTimeMillis();
+		synchronized(registrations){
+			task = null;
+			expunge();
+			for(Registration reg : registrations){
+				JLabel label = reg.get();
+				if(label != null && !reg.running && reg.next <= now && label.isDisplayable()){
+					reg.running = true;
+					due.add(reg);
+				}
+			}
+			reschedule();
+		}
+
+		for(Registration reg : due){
+			reg.refresh();
+		}
+	}
+
+	/**
+	 * Removes all registrations whose label was garbage collected.
+	 * Should only be called while holding the registrations lock.
+	 */
+	private static final void expunge(){
+		Reference<? extends JLabel> ref;
+		while((ref = collected.poll()) != null){
+			registrations.remove(ref);
+		}
+	}
+
+	/**
+	 * Schedules the timer task for the earliest label that is due.
+	 * Should only be called while holding the registrations lock.
+	 */
+	private static final void reschedule(){
+		expunge();
+		if(interval <= 0 || registrations.isEmpty()){
+			if(task != null){
+				task.cancel(false);
+				task = null;
+			}
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		long earliest = Long.MAX_VALUE;
+		for(Registration reg : registrations){
+			JLabel label = reg.get();
+			if(label != null && !reg.running){
+				earliest = Math.min(earliest, label.isDisplayable() ? reg.next : now + SUSPEND_POLL);
+			}
+		}
+
+		if(earliest == Long.MAX_VALUE){
+			return;
+		}
+
+		long delay = Math.max(0L, earliest - now);
+		if(task != null){
+			if(task.getDelay(TimeUnit.MILLISECONDS) <= delay){
+				return;
+			}
+			task.cancel(false);
+		}
+		task = Scheduler.schedule(VersionRefresher::run, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * A single registered label.
+	 * @author Roan
+	 */
+	private static final class Registration extends WeakReference<JLabel>{
+		/**
+		 * The user that owns the repository.
+		 */
+		private final String user;
+		/**
+		 * The repository to check the version for.
+		 */
+		private final String repository;
+		/**
+		 * Updates the label with a newly found latest version.
+		 */
+		private final BiConsumer<JLabel, VersionNumber> updater;
+		/**
+		 * The time in milliseconds since the epoch at
+		 * which the label should next be refreshed.
+		 */
+		private long next;
+		/**
+		 * The number of consecutive failed checks.
+		 */
+		private int failures = 0;
+		/**
+		 * True while a check for this label is running.
+		 */
+		private boolean running = false;
+
+		/**
+		 * Constructs a new registration.
+		 * @param label The label to refresh.
+		 * @param user The user that owns the repository.
+		 * @param repository The repository to check the version for.
+		 * @param updater Updates the label with a newly found latest version.
+		 * @param next The time of the first refresh.
+		 */
+		private Registration(JLabel label, String user, String repository, BiConsumer<JLabel, VersionNumber> updater, long next){
+			super(label, collected);
+			this.user = user;
+			this.repository = repository;
+			this.updater = updater;
+			this.next = next;
+		}
+
+		/**
+		 * Checks the latest version and updates the label.
+		 */
+		private void refresh(){
+			Util.checkVersionAsync(user, repository).whenComplete((version, error)->{
+				Optional<VersionNumber> latest = version == null ? Optional.empty() : version;
+				synchronized(registrations){
+					running = false;
+					long now = System.currentTimeMillis();
+					if(latest.isPresent()){
+						failures = 0;
+						next = now + interval;
+					}else{
+						failures++;
+						next = now + backoff();
+					}
+					reschedule();
+				}
+
+				JLabel label = get();
+				if(label != null && latest.isPresent()){
+					SwingUtilities.invokeLater(()->updater.accept(label, latest.get()));
+				}
+			});
+		}
+
+		/**
+		 * Computes the delay before the next attempt after a failed check.
+		 * @return The backoff delay in milliseconds.
+		 */
+		private long backoff(){
+			long delay = BASE_BACKOFF << Math.min(failures - 1, 20);
+			delay = Math.min(delay, Math.max(interval, BASE_BACKOFF));
+			return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+		}
+	}
+}